@@ -24,5 +24,9 @@ public class MessageConstant {
     public static final String DISH_BE_RELATED_BY_SETMEAL = "当前菜品关联了套餐,不能删除";
     public static final String ORDER_STATUS_ERROR = "订单状态错误";
     public static final String ORDER_NOT_FOUND = "订单不存在";
+    public static final String ORDER_CURSOR_ERROR = "分页游标无效";
+    public static final String ORDER_BATCH_TOO_LARGE = "一次最多处理100个订单";
+    public static final String REPORT_DATE_RANGE_ERROR = "报表时间范围错误";
+    public static final String REPORT_EXPORT_FAILED = "报表导出失败";
 
 }
@@ -0,0 +1,44 @@
+package com.sky.enumeration;
+
+/**
+ * WebSocket推送的消息类型，每种类型对应一个订阅主题
+ */
+public enum WebSocketMessageType {
+
+    /**
+     * 来单提醒
+     */
+    ORDER_NEW(1, "order.new"),
+
+    /**
+     * 客户催单
+     */
+    ORDER_REMINDER(2, "order.reminder"),
+
+    /**
+     * 店铺营业状态变更
+     */
+    SHOP_STATUS(3, "shop.status"),
+
+    /**
+     * 订单状态变更，按订单订阅，主题为order.status:{订单id}
+     */
+    ORDER_STATUS(4, "order.status");
+
+    //推送给客户端的type字段
+    private final int code;
+    private final String topic;
+
+    WebSocketMessageType(int code, String topic) {
+        this.code = code;
+        this.topic = topic;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+}
@@ -1,5 +1,6 @@
 package com.sky.json;
 
+import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.module.SimpleModule;
@@ -30,7 +31,16 @@ public class JacksonObjectMapper extends ObjectMapper {
     public static final String DEFAULT_TIME_FORMAT = "HH:mm:ss";
 
     public JacksonObjectMapper() {
-        super();
+        this(null);
+    }
+
+    /**
+     * 使用指定的数据格式工厂创建对象映射器，例如传入SmileFactory得到二进制JSON格式，
+     * 日期时间等配置与默认的JSON格式保持一致
+     * @param jsonFactory 为null时使用默认的JSON格式
+     */
+    public JacksonObjectMapper(JsonFactory jsonFactory) {
+        super(jsonFactory);
         //收到未知属性时不报异常
         this.configure(FAIL_ON_UNKNOWN_PROPERTIES, false);
 
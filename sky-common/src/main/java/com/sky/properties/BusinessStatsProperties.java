@@ -0,0 +1,32 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "sky.business-stats")
+@Data
+public class BusinessStatsProperties {
+
+    /**
+     * 每晚根据订单表校正最近几天的汇总数据，覆盖订单在下单后几天内的状态流转
+     */
+    private int reconcileDays = 7;
+
+    /**
+     * 启动时是否根据订单表补建历史汇总数据，补建完成后应关闭
+     */
+    private boolean backfill = false;
+
+    /**
+     * 补建汇总数据的天数，从昨天往前计算
+     */
+    private int backfillDays = 365;
+
+    /**
+     * 补建时每个事务处理的天数
+     */
+    private int backfillBatchDays = 30;
+
+}
@@ -0,0 +1,23 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "sky.cart")
+@Data
+public class CartProperties {
+
+    /**
+     * 购物车存储方式：mysql（直接读写shopping_cart表）、redis（Redis哈希表，定时回写数据库）
+     */
+    private String store = "mysql";
+
+    /**
+     * Redis购物车相关配置
+     */
+    private long ttlDays = 7; //购物车最后一次修改后保留的天数
+    private int flushBatchSize = 100; //每次回写数据库的最大用户数
+
+}
@@ -0,0 +1,47 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "sky.http-client")
+@Data
+public class HttpClientProperties {
+
+    /**
+     * 连接池最大连接数
+     */
+    private int maxTotal = 200;
+
+    /**
+     * 每个目标地址（协议+主机+端口）的最大连接数
+     */
+    private int maxPerRoute = 50;
+
+    /**
+     * 建立连接的超时时间（毫秒）
+     */
+    private int connectTimeoutMillis = 5000;
+
+    /**
+     * 从连接池获取连接的超时时间（毫秒）
+     */
+    private int connectionRequestTimeoutMillis = 5000;
+
+    /**
+     * 等待响应数据的超时时间（毫秒）
+     */
+    private int socketTimeoutMillis = 5000;
+
+    /**
+     * 服务端未声明keep-alive时长时，连接保持的秒数
+     */
+    private long keepAliveSeconds = 30;
+
+    /**
+     * 异步请求的线程数
+     */
+    private int asyncThreads = 8;
+
+}
@@ -0,0 +1,32 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "sky.menu-cache")
+@Data
+public class MenuCacheProperties {
+
+    /**
+     * 本地一级缓存相关配置
+     */
+    private long localMaximumSize = 1000; //每个缓存最多保存的条目数
+    private long localExpireSeconds = 300; //写入后过期时间，兜底丢失的失效通知
+
+    /**
+     * Redis缓存过期相关配置
+     */
+    private long ttlSeconds = 1800; //逻辑过期时间，超过后返回旧数据并在后台刷新
+    private long ttlJitterSeconds = 300; //在过期时间上增加的随机时长，避免大量key同时过期
+    private long staleSeconds = 300; //逻辑过期后旧数据在Redis中继续保留的时长
+    private long emptyTtlSeconds = 60; //空结果的缓存时间，避免不存在的数据反复查询数据库
+
+    /**
+     * 加载数据时的Redis互斥锁相关配置
+     */
+    private long lockMillis = 3000; //锁的自动过期时间
+    private long lockWaitMillis = 1000; //未获得锁时等待其他节点加载完成的最长时间
+
+}
@@ -0,0 +1,42 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "sky.order-feed")
+@Data
+public class OrderFeedProperties {
+
+    /**
+     * Redis Stream中保留的最大事件数，断线重连时只能从保留的事件继续
+     */
+    private long maxLength = 10000;
+
+    /**
+     * SSE连接的超时时间（毫秒），超时后客户端自动重连并从上次的事件继续
+     */
+    private long timeoutMillis = 1800000;
+
+    /**
+     * 每个连接待发送事件队列的容量，队列已满时断开连接，由客户端重连
+     */
+    private int queueCapacity = 1000;
+
+    /**
+     * 发送事件的线程数
+     */
+    private int senderThreads = 4;
+
+    /**
+     * 单个事件的发送超时时间（毫秒），客户端长时间不读取时断开连接，被阻塞的发送线程由新线程代替
+     */
+    private long sendTimeoutMillis = 10000;
+
+    /**
+     * 订阅票据的有效期（秒），票据只能使用一次
+     */
+    private long ticketTtlSeconds = 30;
+
+}
@@ -0,0 +1,27 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "sky.order-number")
+@Data
+public class OrderNumberProperties {
+
+    /**
+     * 订单号生成器的节点id（0~1023），小于0时通过Redis自动分配
+     */
+    private long nodeId = -1;
+
+    /**
+     * Redis分配的节点id租约时长（秒），运行期间定时续期
+     */
+    private long nodeLeaseSeconds = 60;
+
+    /**
+     * 允许的最大时钟回拨毫秒数
+     */
+    private long maxBackwardMillis = 5000;
+
+}
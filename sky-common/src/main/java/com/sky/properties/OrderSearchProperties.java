@@ -0,0 +1,22 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "sky.order-search")
+@Data
+public class OrderSearchProperties {
+
+    /**
+     * 启动时是否为历史订单补建搜索索引，从上次中断的位置继续，补建完成后不再执行
+     */
+    private boolean backfill = true;
+
+    /**
+     * 补建索引时每批处理的订单数
+     */
+    private int backfillBatchSize = 500;
+
+}
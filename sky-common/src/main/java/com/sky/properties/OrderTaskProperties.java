@@ -0,0 +1,22 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "sky.order-task")
+@Data
+public class OrderTaskProperties {
+
+    /**
+     * 下单后未支付自动取消的时间（分钟）
+     */
+    private long payTimeoutMinutes = 15;
+
+    /**
+     * 定时任务每批处理的最大订单数
+     */
+    private int batchSize = 100;
+
+}
@@ -0,0 +1,22 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "sky.redis-serializer")
+@Data
+public class RedisSerializerProperties {
+
+    /**
+     * redis中value的存储格式：json、smile（二进制JSON）、jdk（原有的JDK序列化）
+     */
+    private String format = "json";
+
+    /**
+     * 序列化结果超过该字节数时进行gzip压缩，小于0表示不压缩
+     */
+    private int compressThreshold = 1024;
+
+}
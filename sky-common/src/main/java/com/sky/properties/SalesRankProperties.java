@@ -0,0 +1,37 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "sky.sales-rank")
+@Data
+public class SalesRankProperties {
+
+    /**
+     * 销量排行返回的商品数
+     */
+    private int topN = 10;
+
+    /**
+     * Redis中每天的销量数据保留的天数，超过后重新从订单明细统计
+     */
+    private int retainDays = 400;
+
+    /**
+     * 每晚根据订单明细校正最近几天的销量数据
+     */
+    private int reconcileDays = 7;
+
+    /**
+     * 启动时是否在后台补建保留期内缺少的销量数据，已存在的日期不会重新生成
+     */
+    private boolean backfill = true;
+
+    /**
+     * 补建时每次查询的天数
+     */
+    private int backfillBatchDays = 30;
+
+}
@@ -0,0 +1,27 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "sky.websocket")
+@Data
+public class WebSocketProperties {
+
+    /**
+     * 每个连接待发送消息队列的容量
+     */
+    private int queueCapacity = 100;
+
+    /**
+     * 队列已满时的处理方式：drop-oldest（丢弃最早的消息）、disconnect（断开连接，由客户端重连）
+     */
+    private String slowConsumerPolicy = "drop-oldest";
+
+    /**
+     * 单条消息的发送超时时间（毫秒）
+     */
+    private long sendTimeoutMillis = 5000;
+
+}
@@ -0,0 +1,24 @@
+package com.sky.result;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 封装游标分页查询结果，不统计总记录数
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CursorPageResult implements Serializable {
+
+    private List records; //当前页数据集合
+
+    private String nextCursor; //查询下一页时传入的游标，没有下一页时为空
+
+    private boolean hasNext; //是否还有下一页
+
+}
@@ -1,6 +1,7 @@
 package com.sky.utils;
 
 import com.alibaba.fastjson.JSONObject;
+import com.sky.properties.HttpClientProperties;
 import org.apache.http.NameValuePair;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
@@ -10,8 +11,11 @@ import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.utils.URIBuilder;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.message.BasicNameValuePair;
+import org.apache.http.pool.PoolStats;
 import org.apache.http.util.EntityUtils;
 
 import java.io.IOException;
@@ -19,13 +23,104 @@ import java.net.URI;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Http工具类
+ * 所有请求共用一个带连接池的HttpClient，连接在请求之间保持并复用，避免每次请求重新建立TCP和TLS连接；
+ * 由HttpClientConfiguration根据配置初始化，未初始化时使用默认配置；
+ * 调用shutdown后不再自动创建，之后的请求抛出IllegalStateException，只有再次调用init才能恢复
  */
 public class HttpClientUtil {
 
-    static final  int TIMEOUT_MSEC = 5 * 1000;
+    //异步请求等待执行的最大任务数
+    private static final int ASYNC_QUEUE_CAPACITY = 1000;
+
+    private static volatile PoolingHttpClientConnectionManager connectionManager;
+    private static volatile CloseableHttpClient httpClient;
+    private static volatile RequestConfig requestConfig;
+    private static volatile ExecutorService asyncExecutor;
+    //是否已调用shutdown关闭
+    private static volatile boolean closed;
+
+    /**
+     * 按配置创建共用的HttpClient，已存在时先关闭旧的
+     * @param properties
+     */
+    public static synchronized void init(HttpClientProperties properties) {
+        shutdown();
+
+        PoolingHttpClientConnectionManager manager = new PoolingHttpClientConnectionManager();
+        manager.setMaxTotal(properties.getMaxTotal());
+        manager.setDefaultMaxPerRoute(properties.getMaxPerRoute());
+        //连接空闲一段时间后再使用前先检查是否仍然可用
+        manager.setValidateAfterInactivity(2000);
+
+        RequestConfig config = RequestConfig.custom()
+                .setConnectTimeout(properties.getConnectTimeoutMillis())
+                .setConnectionRequestTimeout(properties.getConnectionRequestTimeoutMillis())
+                .setSocketTimeout(properties.getSocketTimeoutMillis()).build();
+
+        long keepAliveMillis = properties.getKeepAliveSeconds() * 1000;
+        CloseableHttpClient client = HttpClients.custom()
+                .setConnectionManager(manager)
+                .setDefaultRequestConfig(config)
+                .setKeepAliveStrategy((response, context) -> {
+                    long duration = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                    return duration > 0 ? duration : keepAliveMillis;
+                })
+                //后台线程定期关闭过期和长时间空闲的连接
+                .evictExpiredConnections()
+                .evictIdleConnections(properties.getKeepAliveSeconds(), TimeUnit.SECONDS)
+                .build();
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        asyncExecutor = new ThreadPoolExecutor(properties.getAsyncThreads(), properties.getAsyncThreads(),
+                60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(ASYNC_QUEUE_CAPACITY), runnable -> {
+            Thread thread = new Thread(runnable, "http-async-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        connectionManager = manager;
+        requestConfig = config;
+        httpClient = client;
+        closed = false;
+    }
+
+    /**
+     * 关闭共用的HttpClient和连接池，之后的请求直接失败
+     */
+    public static synchronized void shutdown() {
+        closed = true;
+        if (asyncExecutor != null) {
+            asyncExecutor.shutdown();
+            asyncExecutor = null;
+        }
+        if (httpClient != null) {
+            try {
+                httpClient.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            httpClient = null;
+            connectionManager = null;
+        }
+    }
+
+    /**
+     * 连接池的整体状态：已借出、空闲、等待获取连接的请求数和最大连接数
+     * @return
+     */
+    public static PoolStats getPoolStats() {
+        PoolingHttpClientConnectionManager manager = connectionManager;
+        return manager == null ? new PoolStats(0, 0, 0, 0) : manager.getTotalStats();
+    }
 
     /**
      * 发送GET方式请求
@@ -34,8 +129,7 @@ public class HttpClientUtil {
      * @return
      */
     public static String doGet(String url,Map<String,String> paramMap){
-        // 创建Httpclient对象
-        CloseableHttpClient httpClient = HttpClients.createDefault();
+        CloseableHttpClient httpClient = getHttpClient();
 
         String result = "";
         CloseableHttpResponse response = null;
@@ -51,6 +145,7 @@ public class HttpClientUtil {
 
             //创建GET请求
             HttpGet httpGet = new HttpGet(uri);
+            httpGet.setConfig(requestConfig);
 
             //发送请求
             response = httpClient.execute(httpGet);
@@ -58,16 +153,14 @@ public class HttpClientUtil {
             //判断响应状态
             if(response.getStatusLine().getStatusCode() == 200){
                 result = EntityUtils.toString(response.getEntity(),"UTF-8");
+            } else {
+                //读完响应内容，连接才能放回连接池复用
+                EntityUtils.consume(response.getEntity());
             }
         }catch (Exception e){
             e.printStackTrace();
         }finally {
-            try {
-                response.close();
-                httpClient.close();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+            close(response);
         }
 
         return result;
@@ -81,8 +174,7 @@ public class HttpClientUtil {
      * @throws IOException
      */
     public static String doPost(String url, Map<String, String> paramMap) throws IOException {
-        // 创建Httpclient对象
-        CloseableHttpClient httpClient = HttpClients.createDefault();
+        CloseableHttpClient httpClient = getHttpClient();
         CloseableHttpResponse response = null;
         String resultString = "";
 
@@ -101,7 +193,7 @@ public class HttpClientUtil {
                 httpPost.setEntity(entity);
             }
 
-            httpPost.setConfig(builderRequestConfig());
+            httpPost.setConfig(requestConfig);
 
             // 执行http请求
             response = httpClient.execute(httpPost);
@@ -110,11 +202,7 @@ public class HttpClientUtil {
         } catch (Exception e) {
             throw e;
         } finally {
-            try {
-                response.close();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+            close(response);
         }
 
         return resultString;
@@ -128,8 +216,7 @@ public class HttpClientUtil {
      * @throws IOException
      */
     public static String doPost4Json(String url, Map<String, String> paramMap) throws IOException {
-        // 创建Httpclient对象
-        CloseableHttpClient httpClient = HttpClients.createDefault();
+        CloseableHttpClient httpClient = getHttpClient();
         CloseableHttpResponse response = null;
         String resultString = "";
 
@@ -151,7 +238,7 @@ public class HttpClientUtil {
                 httpPost.setEntity(entity);
             }
 
-            httpPost.setConfig(builderRequestConfig());
+            httpPost.setConfig(requestConfig);
 
             // 执行http请求
             response = httpClient.execute(httpPost);
@@ -160,20 +247,73 @@ public class HttpClientUtil {
         } catch (Exception e) {
             throw e;
         } finally {
+            close(response);
+        }
+
+        return resultString;
+    }
+
+    /**
+     * 异步发送GET方式请求，在独立的线程池中执行，不占用调用线程
+     * @param url
+     * @param paramMap
+     * @return
+     */
+    public static CompletableFuture<String> doGetAsync(String url, Map<String, String> paramMap) {
+        return CompletableFuture.supplyAsync(() -> doGet(url, paramMap), getAsyncExecutor());
+    }
+
+    /**
+     * 异步发送POST方式请求，请求失败时返回的Future以异常结束
+     * @param url
+     * @param paramMap
+     * @return
+     */
+    public static CompletableFuture<String> doPost4JsonAsync(String url, Map<String, String> paramMap) {
+        return CompletableFuture.supplyAsync(() -> {
             try {
-                response.close();
+                return doPost4Json(url, paramMap);
             } catch (IOException e) {
-                e.printStackTrace();
+                throw new CompletionException(e);
+            }
+        }, getAsyncExecutor());
+    }
+
+    private static CloseableHttpClient getHttpClient() {
+        CloseableHttpClient client = httpClient;
+        if (client == null) {
+            synchronized (HttpClientUtil.class) {
+                if (closed) {
+                    throw new IllegalStateException("HttpClient已关闭");
+                }
+                if (httpClient == null) {
+                    init(new HttpClientProperties());
+                }
+                client = httpClient;
             }
         }
+        return client;
+    }
 
-        return resultString;
+    private static ExecutorService getAsyncExecutor() {
+        getHttpClient();
+        ExecutorService executor = asyncExecutor;
+        if (executor == null) {
+            throw new IllegalStateException("HttpClient已关闭");
+        }
+        return executor;
     }
-    private static RequestConfig builderRequestConfig() {
-        return RequestConfig.custom()
-                .setConnectTimeout(TIMEOUT_MSEC)
-                .setConnectionRequestTimeout(TIMEOUT_MSEC)
-                .setSocketTimeout(TIMEOUT_MSEC).build();
+
+    private static void close(CloseableHttpResponse response) {
+        //只关闭响应，连接由连接池管理
+        if (response == null) {
+            return;
+        }
+        try {
+            response.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
     }
 
 }
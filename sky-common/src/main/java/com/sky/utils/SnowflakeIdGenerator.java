@@ -0,0 +1,87 @@
+package com.sky.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 雪花算法id生成器，生成的id按时间递增
+ * 组成：41位时间戳（相对EPOCH的毫秒数） + 10位节点id + 12位毫秒内序列号
+ * 时间戳和序列号保存在同一个AtomicLong中，通过CAS更新，不加锁。
+ * 节点id来自租约时，租约到期后拒绝生成id，避免其他节点占用同一节点id后生成重复的id
+ */
+public class SnowflakeIdGenerator {
+
+    //起始时间 2024-01-01 00:00:00 (UTC+8)
+    public static final long EPOCH = 1704038400000L;
+
+    private static final int NODE_ID_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+
+    public static final long MAX_NODE_ID = (1L << NODE_ID_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final int TIMESTAMP_SHIFT = NODE_ID_BITS + SEQUENCE_BITS;
+
+    //高位为上次生成id的时间戳，低12位为序列号
+    private final AtomicLong state = new AtomicLong();
+    //允许的最大时钟回拨毫秒数，回拨范围内沿用上次的时间戳继续递增
+    private final long maxBackwardMillis;
+    private volatile long nodeId;
+    //节点id租约的到期时间（毫秒时间戳），固定节点id时永不过期
+    private volatile long leaseExpireTime = Long.MAX_VALUE;
+
+    public SnowflakeIdGenerator(long nodeId, long maxBackwardMillis) {
+        setNodeId(nodeId);
+        this.maxBackwardMillis = maxBackwardMillis;
+    }
+
+    public long getNodeId() {
+        return nodeId;
+    }
+
+    public void setNodeId(long nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("节点id超出范围：" + nodeId);
+        }
+        this.nodeId = nodeId;
+    }
+
+    /**
+     * 设置节点id租约的到期时间，到期后nextId抛出异常，直到续期或重新分配节点id
+     * @param leaseExpireTime 毫秒时间戳，小于当前时间表示立即停止生成id
+     */
+    public void setLeaseExpireTime(long leaseExpireTime) {
+        this.leaseExpireTime = leaseExpireTime;
+    }
+
+    /**
+     * 生成下一个id
+     * 同一毫秒内序列号用完或时钟回拨时，借用下一毫秒继续生成，领先系统时钟超过允许范围时抛出异常；
+     * 节点id租约已到期时抛出异常
+     * @return
+     */
+    public long nextId() {
+        while (true) {
+            long currentTime = System.currentTimeMillis();
+            if (currentTime >= leaseExpireTime) {
+                throw new IllegalStateException("节点id租约已到期，拒绝生成id");
+            }
+            long now = currentTime - EPOCH;
+            long last = state.get();
+            long lastTimestamp = last >>> SEQUENCE_BITS;
+            long next;
+            if (now > lastTimestamp) {
+                next = now << SEQUENCE_BITS;
+            } else {
+                if (lastTimestamp - now > maxBackwardMillis) {
+                    throw new IllegalStateException("系统时钟回拨" + (lastTimestamp - now) + "毫秒，拒绝生成id");
+                }
+                //序列号溢出时自动进位到时间戳
+                next = last + 1;
+            }
+            if (state.compareAndSet(last, next)) {
+                return ((next >>> SEQUENCE_BITS) << TIMESTAMP_SHIFT)
+                        | (nodeId << SEQUENCE_BITS)
+                        | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.sky.utils;
+
+import com.sky.properties.HttpClientProperties;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 微信登录换取openid的吞吐量对比：共用连接池的HttpClientUtil与每次请求新建HttpClient（原实现）
+ * 使用本地的桩服务模拟微信接口，只衡量客户端建立连接的开销，不依赖外网
+ * 运行方式：直接运行main方法，可通过参数指定并发线程数和每个线程的请求数
+ */
+public class HttpClientUtilBenchmark {
+
+    private static final String LOGIN_RESPONSE = "{\"session_key\":\"benchmark\",\"openid\":\"o6_bmjrPTlm6_2sgVt7hMZOPfL2M\"}";
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int requestsPerThread = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        server.createContext("/sns/jscode2session", exchange -> {
+            byte[] body = LOGIN_RESPONSE.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.setExecutor(Executors.newFixedThreadPool(threads));
+        server.start();
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/sns/jscode2session";
+
+        Map<String, String> params = new HashMap<>();
+        params.put("appid", "wx0000000000000000");
+        params.put("secret", "secret");
+        params.put("js_code", "code");
+        params.put("grant_type", "authorization_code");
+
+        HttpClientProperties properties = new HttpClientProperties();
+        properties.setMaxTotal(Math.max(properties.getMaxTotal(), threads));
+        properties.setMaxPerRoute(Math.max(properties.getMaxPerRoute(), threads));
+        HttpClientUtil.init(properties);
+        try {
+            //先各运行一轮预热
+            run("pooled", threads, requestsPerThread / 10, () -> HttpClientUtil.doGet(url, params), false);
+            run("per-request", threads, requestsPerThread / 10, () -> perRequest(url, params), false);
+
+            run("pooled", threads, requestsPerThread, () -> HttpClientUtil.doGet(url, params), true);
+            run("per-request", threads, requestsPerThread, () -> perRequest(url, params), true);
+        } finally {
+            HttpClientUtil.shutdown();
+            server.stop(0);
+            ((ExecutorService) server.getExecutor()).shutdown();
+        }
+    }
+
+    /**
+     * 原实现：每次请求新建HttpClient，请求结束后关闭，连接无法复用
+     */
+    private static String perRequest(String url, Map<String, String> params) throws Exception {
+        StringBuilder uri = new StringBuilder(url).append('?');
+        params.forEach((key, value) -> uri.append(key).append('=').append(value).append('&'));
+        try (CloseableHttpClient client = HttpClients.createDefault();
+             CloseableHttpResponse response = client.execute(new HttpGet(uri.toString()))) {
+            return EntityUtils.toString(response.getEntity(), "UTF-8");
+        }
+    }
+
+    private static void run(String name, int threads, int requestsPerThread, Request request, boolean print) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            long start = System.nanoTime();
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < requestsPerThread; j++) {
+                        if (!request.send().contains("openid")) {
+                            throw new IllegalStateException("响应中没有openid");
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            long elapsedNanos = System.nanoTime() - start;
+            if (print) {
+                int total = threads * requestsPerThread;
+                System.out.printf("%-12s threads=%d requests=%d  %.0f req/s  avg %.3f ms%n", name, threads, total,
+                        total * 1e9 / elapsedNanos, elapsedNanos / 1e6 / requestsPerThread);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private interface Request {
+        String send() throws Exception;
+    }
+}
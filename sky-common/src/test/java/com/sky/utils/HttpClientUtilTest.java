@@ -0,0 +1,58 @@
+package com.sky.utils;
+
+import com.sky.properties.HttpClientProperties;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class HttpClientUtilTest {
+
+    private static HttpServer server;
+    private static String url;
+
+    @BeforeAll
+    public static void startServer() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/echo", exchange -> {
+            byte[] body = String.valueOf(exchange.getRequestURI().getQuery()).getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/echo";
+    }
+
+    @AfterAll
+    public static void stopServer() {
+        HttpClientUtil.shutdown();
+        server.stop(0);
+    }
+
+    /**
+     * 关闭后请求直接失败，不会重新创建连接池，再次初始化后恢复
+     */
+    @Test
+    public void failsFastAfterShutdown() throws Exception {
+        HttpClientUtil.init(new HttpClientProperties());
+        assertEquals("a=1", HttpClientUtil.doGet(url, Collections.singletonMap("a", "1")));
+
+        HttpClientUtil.shutdown();
+        assertThrows(IllegalStateException.class, () -> HttpClientUtil.doGet(url, null));
+        assertThrows(IllegalStateException.class, () -> HttpClientUtil.doGetAsync(url, null));
+        assertEquals(0, HttpClientUtil.getPoolStats().getMax());
+
+        HttpClientUtil.init(new HttpClientProperties());
+        assertEquals("a=2", HttpClientUtil.doGetAsync(url, Collections.singletonMap("a", "2")).get());
+    }
+}
@@ -0,0 +1,66 @@
+package com.sky.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 测试不同线程数下生成id的吞吐量，直接运行main方法
+ * 每毫秒的4096个序列号用完后借用下一毫秒，生成速度超过每秒409万个时id的时间戳会领先系统时钟，
+ * ahead ms为结束时领先的毫秒数，持续高于时钟回拨的允许范围时nextId会抛出异常
+ */
+public class SnowflakeIdGeneratorBenchmark {
+
+    private static final int WARMUP = 2_000_000;
+    private static final int IDS_PER_THREAD = 2_000_000;
+
+    public static void main(String[] args) throws Exception {
+        System.out.printf("%-8s %12s %14s %12s %10s%n", "threads", "ids", "ids/s", "ns/op", "ahead ms");
+        run(1, WARMUP, false);
+        for (int threads : new int[]{1, 4, 16, 64}) {
+            run(threads, IDS_PER_THREAD, true);
+        }
+    }
+
+    private static void run(int threads, int idsPerThread, boolean print) throws Exception {
+        //允许的时钟回拨足够大，借用未来时间戳时不会抛出异常
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1, 60_000);
+        CyclicBarrier barrier = new CyclicBarrier(threads + 1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Long>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    barrier.await();
+                    long sink = 0;
+                    for (int j = 0; j < idsPerThread; j++) {
+                        sink += generator.nextId();
+                    }
+                    return sink;
+                }));
+            }
+            barrier.await();
+            long start = System.nanoTime();
+            long sink = 0;
+            for (Future<Long> future : futures) {
+                sink += future.get();
+            }
+            long nanos = System.nanoTime() - start;
+            long ahead = (generator.nextId() >>> 22) + SnowflakeIdGenerator.EPOCH - System.currentTimeMillis();
+
+            long total = (long) threads * idsPerThread;
+            if (print) {
+                System.out.printf("%-8d %12d %14d %12d %10d%n", threads, total,
+                        total * 1_000_000_000L / nanos, nanos / total, Math.max(0, ahead));
+            }
+            if (sink == 42) {
+                System.out.println();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.sky.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SnowflakeIdGeneratorTest {
+
+    private static final int THREADS = 16;
+    private static final int IDS_PER_THREAD = 100_000;
+
+    /**
+     * 多个线程同时生成id，所有id互不重复，且每个线程内严格递增
+     */
+    @Test
+    public void concurrentIdsAreUniqueAndMonotonicPerThread() throws Exception {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1, 5000);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        CyclicBarrier barrier = new CyclicBarrier(THREADS);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    barrier.await();
+                    long last = Long.MIN_VALUE;
+                    for (int j = 0; j < IDS_PER_THREAD; j++) {
+                        long id = generator.nextId();
+                        assertTrue(id > last, "同一线程内id必须递增");
+                        ids.add(id);
+                        last = id;
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(THREADS * IDS_PER_THREAD, ids.size());
+    }
+
+    /**
+     * id中包含节点id，切换节点id后生成的id仍然递增
+     */
+    @Test
+    public void idContainsNodeId() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(3, 5000);
+        long first = generator.nextId();
+        assertEquals(3, (first >>> 12) & SnowflakeIdGenerator.MAX_NODE_ID);
+
+        generator.setNodeId(SnowflakeIdGenerator.MAX_NODE_ID);
+        long second = generator.nextId();
+        assertEquals(SnowflakeIdGenerator.MAX_NODE_ID, (second >>> 12) & SnowflakeIdGenerator.MAX_NODE_ID);
+        assertTrue(second > first);
+    }
+
+    @Test
+    public void rejectsNodeIdOutOfRange() {
+        assertThrows(IllegalArgumentException.class, () -> new SnowflakeIdGenerator(-1, 5000));
+        assertThrows(IllegalArgumentException.class,
+                () -> new SnowflakeIdGenerator(SnowflakeIdGenerator.MAX_NODE_ID + 1, 5000));
+    }
+
+    /**
+     * 租约到期后拒绝生成id，续期后恢复
+     */
+    @Test
+    public void stopsIssuingIdsWhenLeaseExpires() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1, 5000);
+        generator.setLeaseExpireTime(System.currentTimeMillis() + 60_000);
+        generator.nextId();
+
+        generator.setLeaseExpireTime(0);
+        assertThrows(IllegalStateException.class, generator::nextId);
+
+        generator.setLeaseExpireTime(System.currentTimeMillis() + 60_000);
+        generator.nextId();
+    }
+}
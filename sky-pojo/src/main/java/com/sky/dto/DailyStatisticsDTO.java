@@ -0,0 +1,49 @@
+package com.sky.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * 按天分组的运营统计数据
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailyStatisticsDTO implements Serializable {
+
+    //统计日期
+    private LocalDate statDate;
+
+    //当天订单总数
+    private Integer orderCount;
+
+    //当天有效（已完成）订单数
+    private Integer validOrderCount;
+
+    //当天营业额
+    private Double turnover;
+
+    //当天新增用户数
+    private Integer newUsers;
+
+    /**
+     * 构造指定日期的空统计数据，用于补齐没有数据的日期
+     * @param date
+     * @return
+     */
+    public static DailyStatisticsDTO empty(LocalDate date) {
+        return DailyStatisticsDTO.builder()
+                .statDate(date)
+                .orderCount(0)
+                .validOrderCount(0)
+                .turnover(0.0)
+                .newUsers(0)
+                .build();
+    }
+}
@@ -0,0 +1,36 @@
+package com.sky.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * 按下单日期和商品分组的销量，按订单统计时还按订单分组
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ItemSalesDTO implements Serializable {
+    //订单id，按订单统计时才有值
+    private Long orderId;
+
+    //下单日期
+    private LocalDate statDate;
+
+    //菜品id
+    private Long dishId;
+
+    //套餐id
+    private Long setmealId;
+
+    //商品名称
+    private String name;
+
+    //销量
+    private Integer number;
+}
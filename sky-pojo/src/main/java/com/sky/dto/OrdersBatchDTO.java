@@ -0,0 +1,17 @@
+package com.sky.dto;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.List;
+
+@Data
+public class OrdersBatchDTO implements Serializable {
+
+    //管理端一次最多批量处理的订单数，避免一条语句锁住过多订单
+    public static final int MAX_SIZE = 100;
+
+    //批量处理的订单id，一次最多MAX_SIZE个
+    private List<Long> ids;
+
+}
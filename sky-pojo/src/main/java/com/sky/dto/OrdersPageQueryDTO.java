@@ -17,6 +17,8 @@ public class OrdersPageQueryDTO implements Serializable {
 
     private  String phone;
 
+    private String consignee;
+
     private Integer status;
 
     @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss")
@@ -27,4 +29,10 @@ public class OrdersPageQueryDTO implements Serializable {
 
     private Long userId;
 
+    //游标分页时上一页返回的游标，查询第一页时为空
+    private String cursor;
+
+    //搜索索引是否可用，由服务端根据索引补建进度设置，为false时模糊查询直接匹配订单表
+    private boolean searchIndexed;
+
 }
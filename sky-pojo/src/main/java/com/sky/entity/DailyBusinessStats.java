@@ -0,0 +1,34 @@
+package com.sky.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * 每日运营数据汇总，按下单日期和订单状态分组
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailyBusinessStats implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    //统计日期（下单日期）
+    private LocalDate statDate;
+
+    //订单状态 1待付款 2待接单 3已接单 4派送中 5已完成 6已取消，0为覆盖标记（当天汇总数据已根据订单表生成）
+    private Integer status;
+
+    //订单数量
+    private Integer orderCount;
+
+    //订单金额
+    private BigDecimal amount;
+}
@@ -0,0 +1,37 @@
+package com.sky.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * 订单搜索索引项，保存订单号、手机号、收货人的每个后缀
+ * 任意子串都是某个后缀的前缀，因此前缀、后缀、中间匹配都可以转换为索引上的前缀范围查询
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderSearchTerm implements Serializable {
+
+    /**
+     * 索引字段 1订单号 2手机号 3收货人
+     */
+    public static final Integer NUMBER = 1;
+    public static final Integer PHONE = 2;
+    public static final Integer CONSIGNEE = 3;
+
+    private static final long serialVersionUID = 1L;
+
+    //索引字段
+    private Integer field;
+
+    //字段值的后缀
+    private String term;
+
+    //订单id
+    private Long orderId;
+}
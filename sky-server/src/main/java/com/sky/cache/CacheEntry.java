@@ -0,0 +1,27 @@
+package com.sky.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * 缓存条目，记录缓存数据及其逻辑过期时间
+ * 超过逻辑过期时间后数据仍可返回，同时在后台刷新；Redis中的物理过期时间会额外保留一段时间
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheEntry implements Serializable {
+
+    //缓存数据，为空表示缓存的是空结果
+    private Object value;
+
+    //逻辑过期时间（毫秒时间戳）
+    private long expireTime;
+
+    public boolean isExpired(long now) {
+        return now >= expireTime;
+    }
+}
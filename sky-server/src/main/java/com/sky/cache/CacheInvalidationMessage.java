@@ -0,0 +1,22 @@
+package com.sky.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 缓存失效通知，通过Redis发布订阅广播到所有节点
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheInvalidationMessage {
+
+    public static final String CHANNEL = "sky:cache:invalidate";
+
+    //缓存名称
+    private String cacheName;
+
+    //失效的key，为空表示清空整个缓存
+    private String key;
+}
@@ -0,0 +1,196 @@
+package com.sky.cache;
+
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.jsontype.BasicPolymorphicTypeValidator;
+import com.fasterxml.jackson.databind.jsontype.PolymorphicTypeValidator;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.datatype.jsr310.deser.LocalDateTimeDeserializer;
+import com.fasterxml.jackson.datatype.jsr310.deser.LocalTimeDeserializer;
+import com.fasterxml.jackson.datatype.jsr310.ser.LocalDateTimeSerializer;
+import com.fasterxml.jackson.datatype.jsr310.ser.LocalTimeSerializer;
+import com.sky.json.JacksonObjectMapper;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.springframework.util.StreamUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.temporal.ChronoField;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * redis value序列化器
+ * 写入时按配置的格式（json / smile / jdk）序列化，超过阈值的结果再做gzip压缩；
+ * 读取时根据数据头自动识别格式，切换配置后redis中已有的旧格式数据仍然可以正常读取
+ */
+public class CompactRedisSerializer implements RedisSerializer<Object> {
+
+    public static final String FORMAT_JSON = "json";
+    public static final String FORMAT_SMILE = "smile";
+    public static final String FORMAT_JDK = "jdk";
+
+    private static final byte[] EMPTY = new byte[0];
+
+    //gzip数据头
+    private static final byte GZIP_MAGIC_0 = (byte) 0x1f;
+    private static final byte GZIP_MAGIC_1 = (byte) 0x8b;
+    //JDK序列化数据头
+    private static final byte JDK_MAGIC_0 = (byte) 0xac;
+    private static final byte JDK_MAGIC_1 = (byte) 0xed;
+    //smile数据头 ":)\n"
+    private static final byte SMILE_MAGIC_0 = ':';
+    private static final byte SMILE_MAGIC_1 = ')';
+    private static final byte SMILE_MAGIC_2 = '\n';
+
+    //反序列化时允许还原的类型
+    private static final PolymorphicTypeValidator TYPE_VALIDATOR = BasicPolymorphicTypeValidator.builder()
+            .allowIfSubType("com.sky.")
+            .allowIfSubType(ArrayList.class)
+            .allowIfSubType(LinkedList.class)
+            .allowIfSubType(HashMap.class)
+            .allowIfSubType(LinkedHashMap.class)
+            .allowIfSubType(TreeMap.class)
+            .allowIfSubType(HashSet.class)
+            .allowIfSubType(LinkedHashSet.class)
+            .allowIfSubType(TreeSet.class)
+            .allowIfSubType(Date.class)
+            .allowIfSubType("java.time.")
+            .allowIfSubType(BigDecimal.class)
+            .allowIfSubType(BigInteger.class)
+            .allowIfSubTypeIsArray()
+            .build();
+
+    //接口返回的时间只到秒，缓存中需要保留秒以下的部分，否则读出的数据与数据库不一致；
+    //整秒的时间与接口格式相同，旧格式的缓存数据仍然可以读取
+    private static final DateTimeFormatter DATE_TIME_FORMATTER = withFraction(JacksonObjectMapper.DEFAULT_DATE_TIME_FORMAT);
+    private static final DateTimeFormatter TIME_FORMATTER = withFraction(JacksonObjectMapper.DEFAULT_TIME_FORMAT);
+
+    private final String format;
+    private final int compressThreshold;
+
+    private final ObjectMapper jsonMapper = createMapper(new JacksonObjectMapper());
+    private final ObjectMapper smileMapper = createMapper(new JacksonObjectMapper(new SmileFactory()));
+    private final JdkSerializationRedisSerializer jdkSerializer = new JdkSerializationRedisSerializer();
+
+    public CompactRedisSerializer(String format, int compressThreshold) {
+        if (!FORMAT_JSON.equals(format) && !FORMAT_SMILE.equals(format) && !FORMAT_JDK.equals(format)) {
+            throw new IllegalArgumentException("不支持的redis序列化格式：" + format);
+        }
+        this.format = format;
+        this.compressThreshold = compressThreshold;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return EMPTY;
+        }
+        byte[] bytes;
+        try {
+            if (FORMAT_JDK.equals(format)) {
+                bytes = jdkSerializer.serialize(value);
+            } else if (FORMAT_SMILE.equals(format)) {
+                bytes = smileMapper.writeValueAsBytes(value);
+            } else {
+                bytes = jsonMapper.writeValueAsBytes(value);
+            }
+            if (compressThreshold >= 0 && bytes.length > compressThreshold) {
+                bytes = compress(bytes);
+            }
+        } catch (IOException e) {
+            throw new SerializationException("redis数据序列化失败", e);
+        }
+        return bytes;
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        try {
+            if (startsWith(bytes, GZIP_MAGIC_0, GZIP_MAGIC_1)) {
+                bytes = decompress(bytes);
+            }
+            if (startsWith(bytes, JDK_MAGIC_0, JDK_MAGIC_1)) {
+                return jdkSerializer.deserialize(bytes);
+            }
+            if (startsWith(bytes, SMILE_MAGIC_0, SMILE_MAGIC_1, SMILE_MAGIC_2)) {
+                return smileMapper.readValue(bytes, Object.class);
+            }
+            return jsonMapper.readValue(bytes, Object.class);
+        } catch (IOException e) {
+            throw new SerializationException("redis数据反序列化失败", e);
+        }
+    }
+
+    /**
+     * 在项目统一的对象映射器基础上记录类型信息，反序列化时可以还原出原来的对象类型
+     * 只允许还原项目自己的类和缓存中会出现的集合、时间、数值类型，防止通过写入redis的数据构造任意类
+     * @param objectMapper
+     * @return
+     */
+    private static ObjectMapper createMapper(ObjectMapper objectMapper) {
+        //后注册的模块优先，覆盖项目统一的时间格式
+        objectMapper.registerModule(new SimpleModule()
+                .addDeserializer(LocalDateTime.class, new LocalDateTimeDeserializer(DATE_TIME_FORMATTER))
+                .addDeserializer(LocalTime.class, new LocalTimeDeserializer(TIME_FORMATTER))
+                .addSerializer(LocalDateTime.class, new LocalDateTimeSerializer(DATE_TIME_FORMATTER))
+                .addSerializer(LocalTime.class, new LocalTimeSerializer(TIME_FORMATTER)));
+        objectMapper.activateDefaultTyping(TYPE_VALIDATOR, ObjectMapper.DefaultTyping.NON_FINAL, JsonTypeInfo.As.PROPERTY);
+        return objectMapper;
+    }
+
+    private static DateTimeFormatter withFraction(String pattern) {
+        return new DateTimeFormatterBuilder()
+                .appendPattern(pattern)
+                .appendFraction(ChronoField.NANO_OF_SECOND, 0, 9, true)
+                .toFormatter();
+    }
+
+    private static boolean startsWith(byte[] bytes, byte... magic) {
+        if (bytes.length < magic.length) {
+            return false;
+        }
+        for (int i = 0; i < magic.length; i++) {
+            if (bytes[i] != magic[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] compress(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 2);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] decompress(byte[] bytes) throws IOException {
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            return StreamUtils.copyToByteArray(gzip);
+        }
+    }
+}
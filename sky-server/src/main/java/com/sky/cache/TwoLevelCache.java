@@ -0,0 +1,327 @@
+package com.sky.cache;
+
+import com.alibaba.fastjson.JSON;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.sky.properties.MenuCacheProperties;
+import com.sky.result.Result;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+import org.springframework.cache.support.NullValue;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 二级缓存：一级为本地Caffeine缓存，二级为Redis缓存
+ * 读取时依次查询本地缓存和Redis，修改时删除Redis中的数据并通知所有节点清理本地缓存
+ * 缓存未命中时，同一节点内同一个key只加载一次，节点之间通过Redis互斥锁保证只有一个节点查询数据库；
+ * 数据逻辑过期后先返回旧数据，再由后台线程刷新
+ */
+@Slf4j
+public class TwoLevelCache extends AbstractValueAdaptingCache {
+
+    //只有锁的持有者才能释放锁
+    private static final DefaultRedisScript<Long> UNLOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    //等待其他节点加载数据时的轮询间隔
+    private static final long LOCK_POLL_MILLIS = 50;
+
+    private final String name;
+    //记录当前缓存在Redis中写入过的key，清空缓存时无须扫描整个keyspace
+    private final String keySetKey;
+    private final Cache<String, CacheEntry> localCache;
+    private final MenuCacheProperties menuCacheProperties;
+    private final RedisTemplate redisTemplate;
+    private final StringRedisTemplate stringRedisTemplate;
+    //后台刷新逻辑过期数据的线程池
+    private final Executor refreshExecutor;
+    //本节点正在刷新的key，避免重复提交刷新任务
+    private final Set<String> refreshingKeys = ConcurrentHashMap.newKeySet();
+
+    public TwoLevelCache(String name, Cache<String, CacheEntry> localCache, MenuCacheProperties menuCacheProperties,
+                         RedisTemplate redisTemplate, StringRedisTemplate stringRedisTemplate,
+                         Executor refreshExecutor) {
+        super(true);
+        this.name = name;
+        this.keySetKey = name + ":keys";
+        this.localCache = localCache;
+        this.menuCacheProperties = menuCacheProperties;
+        this.redisTemplate = redisTemplate;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.refreshExecutor = refreshExecutor;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Object getNativeCache() {
+        return localCache;
+    }
+
+    protected Object lookup(Object key) {
+        String cacheKey = key.toString();
+        CacheEntry entry = localCache.getIfPresent(cacheKey);
+        if (entry == null) {
+            //本地缓存未命中，查询Redis并回填本地缓存
+            entry = getRedis(cacheKey);
+            if (entry != null) {
+                localCache.put(cacheKey, entry);
+            }
+        }
+        return entry == null ? null : toLookupValue(entry);
+    }
+
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        String cacheKey = key.toString();
+        //同一节点上同一个key只有一个线程执行加载，其余线程等待加载结果
+        CacheEntry entry = localCache.get(cacheKey, k -> loadEntry(key, k, valueLoader));
+        if (entry.isExpired(System.currentTimeMillis())) {
+            //数据已逻辑过期，先返回旧数据，再在后台刷新
+            scheduleRefresh(key, cacheKey, valueLoader);
+        }
+        return (T) fromStoreValue(toLookupValue(entry));
+    }
+
+    public void put(Object key, Object value) {
+        String cacheKey = key.toString();
+        CacheEntry entry = putRedis(cacheKey, value);
+        localCache.put(cacheKey, entry);
+    }
+
+    public void evict(Object key) {
+        String cacheKey = key.toString();
+        String redisKey = getRedisKey(cacheKey);
+        redisTemplate.delete(redisKey);
+        stringRedisTemplate.opsForSet().remove(keySetKey, redisKey);
+        localCache.invalidate(cacheKey);
+        publish(cacheKey);
+    }
+
+    public void clear() {
+        //只删除记录过的key，使用UNLINK在后台释放内存，不阻塞Redis
+        Set<String> members = stringRedisTemplate.opsForSet().members(keySetKey);
+        List<String> keys = new ArrayList<>();
+        if (members != null) {
+            keys.addAll(members);
+        }
+        keys.add(keySetKey);
+        stringRedisTemplate.unlink(keys);
+        localCache.invalidateAll();
+        publish(null);
+    }
+
+    /**
+     * 收到失效通知后只清理本地缓存
+     * @param key 为空表示清空整个本地缓存
+     */
+    public void evictLocal(String key) {
+        if (key == null) {
+            localCache.invalidateAll();
+        } else {
+            localCache.invalidate(key);
+        }
+    }
+
+    /**
+     * 本地缓存未命中时加载数据：先查Redis，Redis也未命中时获取互斥锁后查询数据库
+     * @param key
+     * @param cacheKey
+     * @param valueLoader
+     * @return
+     */
+    private CacheEntry loadEntry(Object key, String cacheKey, Callable<?> valueLoader) {
+        CacheEntry entry = getRedis(cacheKey);
+        if (entry != null) {
+            return entry;
+        }
+        String lockKey = getLockKey(cacheKey);
+        String token = tryLock(lockKey);
+        if (token == null) {
+            //其他节点正在加载，等待其写入Redis
+            entry = waitForRedis(cacheKey);
+            if (entry != null) {
+                return entry;
+            }
+            //等待超时，直接查询数据库，不再阻塞请求
+            log.warn("等待缓存加载超时：{}::{}", name, cacheKey);
+            return putRedis(cacheKey, loadValue(key, valueLoader));
+        }
+        try {
+            //获得锁后再检查一次，避免重复加载
+            entry = getRedis(cacheKey);
+            if (entry != null) {
+                return entry;
+            }
+            return putRedis(cacheKey, loadValue(key, valueLoader));
+        } finally {
+            unlock(lockKey, token);
+        }
+    }
+
+    /**
+     * 提交后台刷新任务，同一个key在本节点同一时间只刷新一次
+     * @param key
+     * @param cacheKey
+     * @param valueLoader
+     */
+    private void scheduleRefresh(Object key, String cacheKey, Callable<?> valueLoader) {
+        if (!refreshingKeys.add(cacheKey)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    refresh(key, cacheKey, valueLoader);
+                } catch (Exception e) {
+                    //刷新失败时继续使用旧数据，直到Redis中的数据物理过期
+                    log.error("刷新缓存失败：{}::{}", name, cacheKey, e);
+                } finally {
+                    refreshingKeys.remove(cacheKey);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshingKeys.remove(cacheKey);
+            log.warn("刷新任务过多，暂不刷新缓存：{}::{}", name, cacheKey);
+        }
+    }
+
+    private void refresh(Object key, String cacheKey, Callable<?> valueLoader) {
+        long now = System.currentTimeMillis();
+        //其他节点可能已经刷新过Redis中的数据
+        CacheEntry entry = getRedis(cacheKey);
+        if (entry != null && !entry.isExpired(now)) {
+            localCache.put(cacheKey, entry);
+            return;
+        }
+        String lockKey = getLockKey(cacheKey);
+        String token = tryLock(lockKey);
+        if (token == null) {
+            //其他节点正在刷新
+            return;
+        }
+        try {
+            localCache.put(cacheKey, putRedis(cacheKey, loadValue(key, valueLoader)));
+        } finally {
+            unlock(lockKey, token);
+        }
+    }
+
+    private CacheEntry waitForRedis(String cacheKey) {
+        long deadline = System.currentTimeMillis() + menuCacheProperties.getLockWaitMillis();
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(LOCK_POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            CacheEntry entry = getRedis(cacheKey);
+            if (entry != null) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    private String tryLock(String lockKey) {
+        String token = UUID.randomUUID().toString();
+        Boolean locked = stringRedisTemplate.opsForValue()
+                .setIfAbsent(lockKey, token, menuCacheProperties.getLockMillis(), TimeUnit.MILLISECONDS);
+        return Boolean.TRUE.equals(locked) ? token : null;
+    }
+
+    private void unlock(String lockKey, String token) {
+        stringRedisTemplate.execute(UNLOCK_SCRIPT, Collections.singletonList(lockKey), token);
+    }
+
+    private CacheEntry getRedis(String cacheKey) {
+        Object value = redisTemplate.opsForValue().get(getRedisKey(cacheKey));
+        //忽略旧版本直接写入的数据，重新加载
+        return value instanceof CacheEntry ? (CacheEntry) value : null;
+    }
+
+    /**
+     * 写入Redis，并记录写入的key
+     * 过期时间增加随机时长，空结果只缓存较短的时间
+     * @param cacheKey
+     * @param value
+     * @return
+     */
+    private CacheEntry putRedis(String cacheKey, Object value) {
+        long ttlSeconds;
+        long staleSeconds;
+        if (isEmpty(value)) {
+            ttlSeconds = menuCacheProperties.getEmptyTtlSeconds();
+            staleSeconds = 0;
+        } else {
+            long jitter = menuCacheProperties.getTtlJitterSeconds();
+            ttlSeconds = menuCacheProperties.getTtlSeconds()
+                    + (jitter > 0 ? ThreadLocalRandom.current().nextLong(jitter + 1) : 0);
+            staleSeconds = menuCacheProperties.getStaleSeconds();
+        }
+        CacheEntry entry = new CacheEntry(value, System.currentTimeMillis() + ttlSeconds * 1000);
+        String redisKey = getRedisKey(cacheKey);
+        //先记录key再写入数据，保证写入的数据都能被清理
+        stringRedisTemplate.opsForSet().add(keySetKey, redisKey);
+        redisTemplate.opsForValue().set(redisKey, entry, ttlSeconds + staleSeconds, TimeUnit.SECONDS);
+        return entry;
+    }
+
+    private boolean isEmpty(Object value) {
+        //接口直接缓存Result对象，判断其中的数据
+        if (value instanceof Result) {
+            value = ((Result<?>) value).getData();
+        }
+        return value == null
+                || (value instanceof Collection && ((Collection<?>) value).isEmpty())
+                || (value instanceof Map && ((Map<?, ?>) value).isEmpty());
+    }
+
+    private Object toLookupValue(CacheEntry entry) {
+        return entry.getValue() == null ? NullValue.INSTANCE : entry.getValue();
+    }
+
+    private String getRedisKey(String key) {
+        //与Spring默认的Redis缓存key保持一致，例如：setmealCache::100
+        return name + "::" + key;
+    }
+
+    private String getLockKey(String key) {
+        return getRedisKey(key) + ":lock";
+    }
+
+    private Object loadValue(Object key, Callable<?> valueLoader) {
+        try {
+            return valueLoader.call();
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+    }
+
+    private void publish(String key) {
+        try {
+            String message = JSON.toJSONString(new CacheInvalidationMessage(name, key));
+            stringRedisTemplate.convertAndSend(CacheInvalidationMessage.CHANNEL, message);
+        } catch (Exception e) {
+            //通知失败时其他节点的本地缓存依靠过期时间兜底
+            log.error("发送缓存失效通知失败：{}::{}", name, key, e);
+        }
+    }
+}
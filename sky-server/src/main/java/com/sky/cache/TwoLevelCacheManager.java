@@ -0,0 +1,88 @@
+package com.sky.cache;
+
+import com.alibaba.fastjson.JSON;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sky.properties.MenuCacheProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 二级缓存管理器，同时监听其他节点发出的缓存失效通知
+ */
+@Slf4j
+public class TwoLevelCacheManager implements CacheManager, MessageListener, DisposableBean {
+
+    private final ConcurrentMap<String, TwoLevelCache> cacheMap = new ConcurrentHashMap<>();
+
+    //后台刷新逻辑过期数据的线程池，任务过多时直接拒绝，由下一次请求重新触发刷新
+    private final ThreadPoolExecutor refreshExecutor = new ThreadPoolExecutor(
+            1, 4, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(100),
+            runnable -> {
+                Thread thread = new Thread(runnable, "cache-refresh");
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.AbortPolicy());
+
+    private final MenuCacheProperties menuCacheProperties;
+    private final RedisTemplate redisTemplate;
+    private final StringRedisTemplate stringRedisTemplate;
+
+    public TwoLevelCacheManager(MenuCacheProperties menuCacheProperties,
+                                RedisTemplate redisTemplate, StringRedisTemplate stringRedisTemplate) {
+        this.menuCacheProperties = menuCacheProperties;
+        this.redisTemplate = redisTemplate;
+        this.stringRedisTemplate = stringRedisTemplate;
+    }
+
+    public Cache getCache(String name) {
+        return cacheMap.computeIfAbsent(name, this::createCache);
+    }
+
+    public Collection<String> getCacheNames() {
+        return Collections.unmodifiableSet(cacheMap.keySet());
+    }
+
+    /**
+     * 收到缓存失效通知，清理本节点的本地缓存
+     * @param message
+     * @param pattern
+     */
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        CacheInvalidationMessage invalidation = JSON.parseObject(body, CacheInvalidationMessage.class);
+        TwoLevelCache cache = cacheMap.get(invalidation.getCacheName());
+        if (cache != null) {
+            log.debug("清理本地缓存：{}::{}", invalidation.getCacheName(), invalidation.getKey());
+            cache.evictLocal(invalidation.getKey());
+        }
+    }
+
+    public void destroy() {
+        refreshExecutor.shutdownNow();
+    }
+
+    private TwoLevelCache createCache(String name) {
+        com.github.benmanes.caffeine.cache.Cache<String, CacheEntry> localCache = Caffeine.newBuilder()
+                .maximumSize(menuCacheProperties.getLocalMaximumSize())
+                .expireAfterWrite(menuCacheProperties.getLocalExpireSeconds(), TimeUnit.SECONDS)
+                .build();
+        return new TwoLevelCache(name, localCache, menuCacheProperties,
+                redisTemplate, stringRedisTemplate, refreshExecutor);
+    }
+}
@@ -0,0 +1,55 @@
+package com.sky.cart;
+
+import com.sky.entity.ShoppingCart;
+
+import java.util.List;
+
+/**
+ * 购物车存储，根据配置sky.cart.store选择MySQL或Redis实现
+ * 购物车商品由用户id、菜品id、口味、套餐id确定
+ */
+public interface CartStore {
+
+    /**
+     * 购物车中已有该商品时数量加1
+     * @param shoppingCart
+     * @return 购物车中没有该商品时返回false
+     */
+    boolean increase(ShoppingCart shoppingCart);
+
+    /**
+     * 向购物车加入新商品
+     * @param shoppingCart 包含名称、图片、金额、数量等完整信息
+     */
+    void insert(ShoppingCart shoppingCart);
+
+    /**
+     * 批量加入商品，已有的商品累加数量
+     * @param shoppingCartList
+     */
+    void insertBatch(List<ShoppingCart> shoppingCartList);
+
+    /**
+     * 商品数量减1，减到0时从购物车中删除
+     * @param shoppingCart
+     */
+    void decrease(ShoppingCart shoppingCart);
+
+    /**
+     * 查询用户购物车中的全部商品
+     * @param userId
+     * @return
+     */
+    List<ShoppingCart> list(Long userId);
+
+    /**
+     * 清空用户购物车
+     * @param userId
+     */
+    void clean(Long userId);
+
+    /**
+     * 将缓存中修改过的购物车写回数据库
+     */
+    void flush();
+}
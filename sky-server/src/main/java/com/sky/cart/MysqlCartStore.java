@@ -0,0 +1,61 @@
+package com.sky.cart;
+
+import com.sky.entity.ShoppingCart;
+import com.sky.mapper.ShoppingCartMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * 直接读写shopping_cart表的购物车存储
+ * 增加数量和添加商品都是单条语句，依靠唯一索引（见db/shopping_cart.sql）处理同一商品的并发添加；
+ * 减少数量时先用带number > 1条件的语句减1，没有修改任何行时才删除数量为1的商品
+ */
+@Component
+@ConditionalOnProperty(prefix = "sky.cart", name = "store", havingValue = "mysql", matchIfMissing = true)
+public class MysqlCartStore implements CartStore {
+
+    @Autowired
+    private ShoppingCartMapper shoppingCartMapper;
+
+    public boolean increase(ShoppingCart shoppingCart) {
+        return shoppingCartMapper.increaseNumber(shoppingCart) > 0;
+    }
+
+    public void insert(ShoppingCart shoppingCart) {
+        shoppingCartMapper.insert(shoppingCart);
+    }
+
+    public void insertBatch(List<ShoppingCart> shoppingCartList) {
+        shoppingCartMapper.insertBatch(shoppingCartList);
+    }
+
+    @Transactional
+    public void decrease(ShoppingCart shoppingCart) {
+        //常见情况数量大于1，一条语句完成
+        if (shoppingCartMapper.decreaseNumber(shoppingCart) > 0) {
+            return;
+        }
+        //数量为1（或没有该商品）时删除；上面的UPDATE即使没有修改也锁定了该行（可重复读隔离级别），
+        //并发的添加要等事务结束，删除语句的number条件保证不会删掉已经被加过的商品
+        shoppingCartMapper.deleteLine(shoppingCart);
+    }
+
+    public List<ShoppingCart> list(Long userId) {
+        ShoppingCart shoppingCart = ShoppingCart.builder()
+                .userId(userId)
+                .build();
+        return shoppingCartMapper.list(shoppingCart);
+    }
+
+    public void clean(Long userId) {
+        shoppingCartMapper.deleteByUserId(userId);
+    }
+
+    public void flush() {
+        //数据直接写入数据库，无须回写
+    }
+}
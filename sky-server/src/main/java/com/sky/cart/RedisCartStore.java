@@ -0,0 +1,281 @@
+package com.sky.cart;
+
+import com.alibaba.fastjson.JSON;
+import com.sky.entity.ShoppingCart;
+import com.sky.mapper.ShoppingCartMapper;
+import com.sky.properties.CartProperties;
+import com.sky.utils.TransactionUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 基于Redis哈希表的购物车存储
+ * 每个用户的购物车是一个哈希表，每个商品对应商品信息和数量两个字段，数量通过HINCRBY原子修改；
+ * 修改过的用户记录在待回写集合中，由定时任务批量写回shopping_cart表。
+ * 哈希表中的ver字段是购物车版本，每次修改都会增大，回写时与数据库中已写入的版本比较，旧的快照不会覆盖新的数据；
+ * Redis中没有该用户的购物车（首次使用或已过期）时先从数据库加载，空购物车也保留ver字段
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "sky.cart", name = "store", havingValue = "redis")
+public class RedisCartStore implements CartStore {
+
+    private static final String KEY_PREFIX = "cart:";
+    //待回写数据库的用户id集合
+    private static final String DIRTY_KEY = "cart:dirty";
+    private static final String INFO_PREFIX = "info:";
+    private static final String NUMBER_PREFIX = "num:";
+
+    private static final String VERSION_FIELD = "ver";
+
+    //版本号取当前毫秒数与原版本加1中的较大值，保证单调递增，并且重新加载后仍大于数据库中记录的版本
+    private static final String NEXT_VERSION =
+            "local version = math.max(tonumber(redis.call('hget', KEYS[1], 'ver') or '0') + 1, tonumber(ARGV[5])) " +
+            "redis.call('hset', KEYS[1], 'ver', string.format('%.0f', version)) ";
+
+    //KEYS: 购物车, 待回写集合  ARGV: 商品信息字段, 数量字段, 过期秒数, 用户id, 当前毫秒数
+    private static final DefaultRedisScript<Long> INCREASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('hexists', KEYS[1], ARGV[1]) == 0 then return 0 end " +
+            "redis.call('hincrby', KEYS[1], ARGV[2], 1) " +
+            NEXT_VERSION +
+            "redis.call('expire', KEYS[1], ARGV[3]) " +
+            "redis.call('sadd', KEYS[2], ARGV[4]) " +
+            "return 1", Long.class);
+
+    //KEYS: 购物车, 待回写集合  ARGV: 商品信息字段, 数量字段, 过期秒数, 用户id, 当前毫秒数, 商品信息, 数量
+    private static final DefaultRedisScript<Long> INSERT_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('hsetnx', KEYS[1], ARGV[1], ARGV[6]) " +
+            "redis.call('hincrby', KEYS[1], ARGV[2], ARGV[7]) " +
+            NEXT_VERSION +
+            "redis.call('expire', KEYS[1], ARGV[3]) " +
+            "redis.call('sadd', KEYS[2], ARGV[4]) " +
+            "return 1", Long.class);
+
+    //KEYS: 购物车, 待回写集合  ARGV: 商品信息字段, 数量字段, 过期秒数, 用户id, 当前毫秒数
+    private static final DefaultRedisScript<Long> DECREASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('hexists', KEYS[1], ARGV[1]) == 0 then return 0 end " +
+            "local number = redis.call('hincrby', KEYS[1], ARGV[2], -1) " +
+            "if number <= 0 then redis.call('hdel', KEYS[1], ARGV[1], ARGV[2]) end " +
+            NEXT_VERSION +
+            "redis.call('expire', KEYS[1], ARGV[3]) " +
+            "redis.call('sadd', KEYS[2], ARGV[4]) " +
+            "return 1", Long.class);
+
+    //清空购物车时只保留版本字段，表示购物车为空而不是未加载
+    //KEYS: 购物车, 待回写集合  ARGV: 占位, 占位, 过期秒数, 用户id, 当前毫秒数
+    private static final DefaultRedisScript<Long> CLEAN_SCRIPT = new DefaultRedisScript<>(
+            "local version = math.max(tonumber(redis.call('hget', KEYS[1], 'ver') or '0') + 1, tonumber(ARGV[5])) " +
+            "redis.call('del', KEYS[1]) " +
+            "redis.call('hset', KEYS[1], 'ver', string.format('%.0f', version)) " +
+            "redis.call('expire', KEYS[1], ARGV[3]) " +
+            "redis.call('sadd', KEYS[2], ARGV[4]) " +
+            "return 1", Long.class);
+
+    //购物车不存在时写入从数据库加载的数据，已存在说明其他请求已加载或修改过，不能覆盖
+    //KEYS: 购物车  ARGV: 过期秒数, 版本, 之后依次为字段和值
+    private static final DefaultRedisScript<Long> LOAD_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('exists', KEYS[1]) == 1 then return 0 end " +
+            "redis.call('hset', KEYS[1], 'ver', ARGV[2]) " +
+            "for i = 3, #ARGV, 2 do redis.call('hset', KEYS[1], ARGV[i], ARGV[i + 1]) end " +
+            "redis.call('expire', KEYS[1], ARGV[1]) " +
+            "return 1", Long.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private ShoppingCartMapper shoppingCartMapper;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private CartProperties cartProperties;
+
+    public boolean increase(ShoppingCart shoppingCart) {
+        load(shoppingCart.getUserId());
+        String line = getLine(shoppingCart);
+        Long result = stringRedisTemplate.execute(INCREASE_SCRIPT, getKeys(shoppingCart.getUserId()),
+                INFO_PREFIX + line, NUMBER_PREFIX + line, getTtlSeconds(), shoppingCart.getUserId().toString(),
+                String.valueOf(System.currentTimeMillis()));
+        return result != null && result == 1;
+    }
+
+    public void insert(ShoppingCart shoppingCart) {
+        load(shoppingCart.getUserId());
+        String line = getLine(shoppingCart);
+        stringRedisTemplate.execute(INSERT_SCRIPT, getKeys(shoppingCart.getUserId()),
+                INFO_PREFIX + line, NUMBER_PREFIX + line, getTtlSeconds(), shoppingCart.getUserId().toString(),
+                String.valueOf(System.currentTimeMillis()), getInfo(shoppingCart), shoppingCart.getNumber().toString());
+    }
+
+    public void insertBatch(List<ShoppingCart> shoppingCartList) {
+        shoppingCartList.forEach(this::insert);
+    }
+
+    public void decrease(ShoppingCart shoppingCart) {
+        load(shoppingCart.getUserId());
+        String line = getLine(shoppingCart);
+        stringRedisTemplate.execute(DECREASE_SCRIPT, getKeys(shoppingCart.getUserId()),
+                INFO_PREFIX + line, NUMBER_PREFIX + line, getTtlSeconds(), shoppingCart.getUserId().toString(),
+                String.valueOf(System.currentTimeMillis()));
+    }
+
+    public List<ShoppingCart> list(Long userId) {
+        load(userId);
+        return toList(stringRedisTemplate.opsForHash().entries(getKey(userId)));
+    }
+
+    private List<ShoppingCart> toList(Map<Object, Object> entries) {
+        List<ShoppingCart> list = new ArrayList<>();
+        entries.forEach((field, value) -> {
+            String name = field.toString();
+            if (!name.startsWith(INFO_PREFIX)) {
+                return;
+            }
+            Object number = entries.get(NUMBER_PREFIX + name.substring(INFO_PREFIX.length()));
+            if (number == null || Integer.parseInt(number.toString()) <= 0) {
+                return;
+            }
+            ShoppingCart shoppingCart = JSON.parseObject(value.toString(), ShoppingCart.class);
+            shoppingCart.setNumber(Integer.valueOf(number.toString()));
+            list.add(shoppingCart);
+        });
+        return list;
+    }
+
+    public void clean(Long userId) {
+        //在事务中清空时（例如下单），等事务提交后再删除，避免下单失败后购物车丢失
+        TransactionUtils.afterCommit(() -> doClean(userId));
+    }
+
+    /**
+     * 分批取出修改过的用户，用Redis中的购物车覆盖数据库中的数据
+     */
+    public void flush() {
+        List<String> failedUserIds = new ArrayList<>();
+        List<String> userIds;
+        while (failedUserIds.isEmpty()
+                && (userIds = stringRedisTemplate.opsForSet().pop(DIRTY_KEY, cartProperties.getFlushBatchSize())) != null
+                && !userIds.isEmpty()) {
+            for (String userId : userIds) {
+                try {
+                    flush(Long.valueOf(userId));
+                } catch (Exception e) {
+                    log.error("购物车写回数据库失败，用户id：{}", userId, e);
+                    failedUserIds.add(userId);
+                }
+            }
+        }
+        //写回失败时重新标记，等待下次定时任务写回
+        if (!failedUserIds.isEmpty()) {
+            stringRedisTemplate.opsForSet().add(DIRTY_KEY, failedUserIds.toArray(new String[0]));
+        }
+    }
+
+    private void flush(Long userId) {
+        Map<Object, Object> entries = stringRedisTemplate.opsForHash().entries(getKey(userId));
+        Object version = entries.get(VERSION_FIELD);
+        if (version == null) {
+            //购物车已过期，数据库中的数据就是最后一次回写的结果
+            return;
+        }
+        List<ShoppingCart> shoppingCartList = toList(entries);
+        transactionTemplate.executeWithoutResult(status -> {
+            //锁住该用户的版本记录，多个节点同时回写同一用户时串行执行，版本不比数据库新的快照直接丢弃
+            shoppingCartMapper.insertVersionIfAbsent(userId);
+            long flushedVersion = shoppingCartMapper.getVersionForUpdate(userId);
+            if (flushedVersion >= Long.parseLong(version.toString())) {
+                return;
+            }
+            shoppingCartMapper.deleteByUserId(userId);
+            if (!shoppingCartList.isEmpty()) {
+                shoppingCartMapper.insertBatch(shoppingCartList);
+            }
+            shoppingCartMapper.updateVersion(userId, Long.valueOf(version.toString()));
+        });
+    }
+
+    private void doClean(Long userId) {
+        stringRedisTemplate.execute(CLEAN_SCRIPT, getKeys(userId),
+                "", "", getTtlSeconds(), userId.toString(), String.valueOf(System.currentTimeMillis()));
+    }
+
+    /**
+     * Redis中没有该用户的购物车时从数据库加载，版本使用数据库中记录的版本
+     * @param userId
+     */
+    private void load(Long userId) {
+        if (Boolean.TRUE.equals(stringRedisTemplate.hasKey(getKey(userId)))) {
+            return;
+        }
+        ShoppingCart query = ShoppingCart.builder()
+                .userId(userId)
+                .build();
+        List<ShoppingCart> shoppingCartList = shoppingCartMapper.list(query);
+        Long version = shoppingCartMapper.getVersion(userId);
+
+        List<String> args = new ArrayList<>();
+        args.add(getTtlSeconds());
+        args.add(String.valueOf(version == null ? 0 : version));
+        for (ShoppingCart shoppingCart : shoppingCartList) {
+            String line = getLine(shoppingCart);
+            args.add(INFO_PREFIX + line);
+            args.add(getInfo(shoppingCart));
+            args.add(NUMBER_PREFIX + line);
+            args.add(shoppingCart.getNumber().toString());
+        }
+        stringRedisTemplate.execute(LOAD_SCRIPT, Collections.singletonList(getKey(userId)), args.toArray());
+    }
+
+    /**
+     * 商品信息，数量单独保存，商品信息中不包含数量
+     * @param shoppingCart
+     * @return
+     */
+    private String getInfo(ShoppingCart shoppingCart) {
+        ShoppingCart info = new ShoppingCart();
+        info.setName(shoppingCart.getName());
+        info.setImage(shoppingCart.getImage());
+        info.setUserId(shoppingCart.getUserId());
+        info.setDishId(shoppingCart.getDishId());
+        info.setSetmealId(shoppingCart.getSetmealId());
+        info.setDishFlavor(shoppingCart.getDishFlavor());
+        info.setAmount(shoppingCart.getAmount());
+        info.setCreateTime(shoppingCart.getCreateTime());
+        return JSON.toJSONString(info);
+    }
+
+    /**
+     * 购物车中商品的标识，菜品为d{菜品id}:{口味}，套餐为s{套餐id}
+     * @param shoppingCart
+     * @return
+     */
+    private String getLine(ShoppingCart shoppingCart) {
+        if (shoppingCart.getDishId() != null) {
+            String dishFlavor = shoppingCart.getDishFlavor() == null ? "" : shoppingCart.getDishFlavor();
+            return "d" + shoppingCart.getDishId() + ":" + dishFlavor;
+        }
+        return "s" + shoppingCart.getSetmealId();
+    }
+
+    private List<String> getKeys(Long userId) {
+        return Arrays.asList(getKey(userId), DIRTY_KEY);
+    }
+
+    private String getKey(Long userId) {
+        return KEY_PREFIX + userId;
+    }
+
+    private String getTtlSeconds() {
+        return String.valueOf(cartProperties.getTtlDays() * 24 * 60 * 60);
+    }
+}
@@ -0,0 +1,32 @@
+package com.sky.config;
+
+import com.sky.cache.CacheInvalidationMessage;
+import com.sky.cache.TwoLevelCacheManager;
+import com.sky.properties.MenuCacheProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+/**
+ * 配置类，用于创建本地缓存+Redis的二级缓存管理器
+ */
+@Slf4j
+@Configuration
+public class CacheConfiguration {
+
+    @Bean
+    public TwoLevelCacheManager cacheManager(MenuCacheProperties menuCacheProperties,
+                                             RedisTemplate redisTemplate,
+                                             StringRedisTemplate stringRedisTemplate,
+                                             RedisMessageListenerContainer redisMessageListenerContainer){
+        log.info("开始创建二级缓存管理器：{}", menuCacheProperties);
+        TwoLevelCacheManager cacheManager = new TwoLevelCacheManager(menuCacheProperties, redisTemplate, stringRedisTemplate);
+        //订阅缓存失效通知，其他节点修改数据后清理本节点的本地缓存
+        redisMessageListenerContainer.addMessageListener(cacheManager, new ChannelTopic(CacheInvalidationMessage.CHANNEL));
+        return cacheManager;
+    }
+}
@@ -0,0 +1,39 @@
+package com.sky.config;
+
+import com.sky.properties.HttpClientProperties;
+import com.sky.utils.HttpClientUtil;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 配置类，用于初始化HttpClientUtil共用的连接池，并通过Micrometer暴露连接池状态
+ */
+@Slf4j
+@Configuration
+public class HttpClientConfiguration implements DisposableBean {
+
+    public HttpClientConfiguration(HttpClientProperties httpClientProperties, MeterRegistry meterRegistry) {
+        log.info("开始初始化Http连接池：{}", httpClientProperties);
+        HttpClientUtil.init(httpClientProperties);
+
+        Gauge.builder("http.client.pool.leased", () -> HttpClientUtil.getPoolStats().getLeased())
+                .description("已借出的连接数")
+                .register(meterRegistry);
+        Gauge.builder("http.client.pool.available", () -> HttpClientUtil.getPoolStats().getAvailable())
+                .description("空闲的连接数")
+                .register(meterRegistry);
+        Gauge.builder("http.client.pool.pending", () -> HttpClientUtil.getPoolStats().getPending())
+                .description("等待获取连接的请求数")
+                .register(meterRegistry);
+        Gauge.builder("http.client.pool.max", () -> HttpClientUtil.getPoolStats().getMax())
+                .description("最大连接数")
+                .register(meterRegistry);
+    }
+
+    public void destroy() {
+        HttpClientUtil.shutdown();
+    }
+}
@@ -0,0 +1,125 @@
+package com.sky.config;
+
+import com.sky.properties.OrderNumberProperties;
+import com.sky.utils.SnowflakeIdGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.annotation.PreDestroy;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 配置类，用于创建订单号生成器
+ * 未配置节点id时，从Redis中抢占一个空闲的节点id，运行期间定时续期，停止时释放；
+ * 生成器只在租约有效期内生成id，续期失败时立即停止生成，重新抢占到节点id后恢复
+ */
+@Slf4j
+@Configuration
+public class OrderNumberConfiguration {
+
+    private static final String NODE_KEY_PREFIX = "sky:order-number:node:";
+
+    //只有持有者才能续期、释放节点id
+    private static final DefaultRedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('expire', KEYS[1], ARGV[2]) else return 0 end",
+            Long.class);
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    //当前实例的标识，作为节点id租约的值
+    private final String instanceId = UUID.randomUUID().toString();
+
+    @Autowired
+    private OrderNumberProperties orderNumberProperties;
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    private SnowflakeIdGenerator orderNumberGenerator;
+
+    @Bean
+    public SnowflakeIdGenerator orderNumberGenerator(){
+        long nodeId = orderNumberProperties.getNodeId();
+        if (nodeId >= 0) {
+            log.info("开始创建订单号生成器，节点id：{}", nodeId);
+            orderNumberGenerator = new SnowflakeIdGenerator(nodeId, orderNumberProperties.getMaxBackwardMillis());
+            return orderNumberGenerator;
+        }
+        long leaseStartTime = System.currentTimeMillis();
+        nodeId = acquireNodeId();
+        log.info("开始创建订单号生成器，节点id：{}", nodeId);
+        orderNumberGenerator = new SnowflakeIdGenerator(nodeId, orderNumberProperties.getMaxBackwardMillis());
+        orderNumberGenerator.setLeaseExpireTime(getLeaseExpireTime(leaseStartTime));
+        return orderNumberGenerator;
+    }
+
+    /**
+     * 每20秒续期一次节点id租约，租约丢失时重新抢占
+     */
+    @Scheduled(fixedDelay = 20000)
+    public void renewNodeId(){
+        if (orderNumberProperties.getNodeId() >= 0 || orderNumberGenerator == null) {
+            return;
+        }
+        long nodeId = orderNumberGenerator.getNodeId();
+        //以发送续期命令前的时间计算到期时间，保证本地认为的到期时间不晚于Redis中的实际到期时间
+        long leaseStartTime = System.currentTimeMillis();
+        Long renewed = stringRedisTemplate.execute(RENEW_SCRIPT, Collections.singletonList(NODE_KEY_PREFIX + nodeId),
+                instanceId, String.valueOf(orderNumberProperties.getNodeLeaseSeconds()));
+        if (renewed != null && renewed == 1) {
+            orderNumberGenerator.setLeaseExpireTime(getLeaseExpireTime(leaseStartTime));
+            return;
+        }
+        //租约已过期，可能已被其他节点占用，先停止生成id，再重新抢占一个节点id
+        orderNumberGenerator.setLeaseExpireTime(0);
+        leaseStartTime = System.currentTimeMillis();
+        long newNodeId = tryAcquire(nodeId) ? nodeId : acquireNodeId();
+        log.warn("订单号生成器节点id租约丢失，重新分配节点id：{} -> {}", nodeId, newNodeId);
+        orderNumberGenerator.setNodeId(newNodeId);
+        orderNumberGenerator.setLeaseExpireTime(getLeaseExpireTime(leaseStartTime));
+    }
+
+    @PreDestroy
+    public void releaseNodeId(){
+        if (orderNumberProperties.getNodeId() >= 0 || orderNumberGenerator == null) {
+            return;
+        }
+        orderNumberGenerator.setLeaseExpireTime(0);
+        stringRedisTemplate.execute(RELEASE_SCRIPT,
+                Collections.singletonList(NODE_KEY_PREFIX + orderNumberGenerator.getNodeId()), instanceId);
+    }
+
+    /**
+     * 从随机位置开始依次尝试抢占空闲的节点id
+     * @return
+     */
+    private long acquireNodeId() {
+        long count = SnowflakeIdGenerator.MAX_NODE_ID + 1;
+        long start = ThreadLocalRandom.current().nextLong(count);
+        for (long i = 0; i < count; i++) {
+            long nodeId = (start + i) % count;
+            if (tryAcquire(nodeId)) {
+                return nodeId;
+            }
+        }
+        throw new IllegalStateException("没有可用的订单号生成器节点id");
+    }
+
+    private long getLeaseExpireTime(long leaseStartTime) {
+        return leaseStartTime + TimeUnit.SECONDS.toMillis(orderNumberProperties.getNodeLeaseSeconds());
+    }
+
+    private boolean tryAcquire(long nodeId) {
+        Boolean acquired = stringRedisTemplate.opsForValue().setIfAbsent(NODE_KEY_PREFIX + nodeId, instanceId,
+                orderNumberProperties.getNodeLeaseSeconds(), TimeUnit.SECONDS);
+        return Boolean.TRUE.equals(acquired);
+    }
+}
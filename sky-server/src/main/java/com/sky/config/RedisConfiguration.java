@@ -1,11 +1,14 @@
 package com.sky.config;
 
+import com.sky.cache.CompactRedisSerializer;
+import com.sky.properties.RedisSerializerProperties;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 import javax.annotation.Resource;
@@ -15,6 +18,9 @@ import javax.annotation.Resource;
 public class RedisConfiguration {
     @Resource
     private RedisConnectionFactory redisConnectionFactory;
+    @Resource
+    private RedisSerializerProperties redisSerializerProperties;
+
     @Bean
     public RedisTemplate redisTemplate(){
         log.info("开始创建redis模板对象");
@@ -24,6 +30,21 @@ public class RedisConfiguration {
         redisTemplate.setConnectionFactory(redisConnectionFactory);
         //设置redis中 key的序列化器
         redisTemplate.setKeySerializer(new StringRedisSerializer());
+        redisTemplate.setHashKeySerializer(new StringRedisSerializer());
+        //设置redis中 value的序列化器，二级缓存同样通过该模板读写redis
+        CompactRedisSerializer valueSerializer = new CompactRedisSerializer(
+                redisSerializerProperties.getFormat(), redisSerializerProperties.getCompressThreshold());
+        redisTemplate.setValueSerializer(valueSerializer);
+        redisTemplate.setHashValueSerializer(valueSerializer);
         return redisTemplate;
     }
+
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(){
+        log.info("开始创建redis消息监听容器");
+        //用于订阅redis发布的消息
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        return container;
+    }
 }
@@ -11,11 +11,16 @@ import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.ibatis.annotations.Delete;
+import com.google.common.collect.Lists;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.web.bind.annotation.*;
 
 import javax.websocket.server.PathParam;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -28,7 +33,7 @@ public class DishController {
     @Autowired
     private DishService dishService;
     @Autowired
-    private RedisTemplate redisTemplate;
+    private CacheManager cacheManager;
 
     /**
      * 新增菜品
@@ -37,15 +42,12 @@ public class DishController {
      */
     @PostMapping
     @ApiOperation("新增菜品")
+    @CacheEvict(cacheNames = "dishCache", key = "#dishDTO.categoryId") //key: dishCache::100
     public Result save(@RequestBody DishDTO dishDTO){
         log.info("新增菜品：{}",dishDTO);
 
         dishService.saveWithFlavors(dishDTO);
 
-        //清理缓存数据
-        String key = "dish_" + dishDTO.getCategoryId();
-        clearCache(key);
-
         return Result.success();
     }
 
@@ -67,10 +69,11 @@ public class DishController {
     @ApiOperation("菜品批量删除")
     public Result delete(@RequestParam List<Long> ids){
         log.info("批量删除菜品：{}",ids);
+        //删除前查询菜品所属的分类，只清理这些分类的缓存数据
+        List<Long> categoryIds = dishService.getCategoryIdsByIds(ids);
         dishService.deleteBatch(ids);
 
-        //将所有的菜品缓存数据清理，所有以dish_开头的key
-        clearCache("dish_*");
+        cleanCache(categoryIds);
 
         return Result.success();
     }
@@ -97,10 +100,12 @@ public class DishController {
     @ApiOperation("修改菜品及其口味信息")
     public Result updateWithFlavors(@RequestBody DishDTO dishDTO){
         log.info("修改菜品及其口味信息：{}",dishDTO);
+        //修改菜品分类时，原分类和新分类的缓存数据都需要清理
+        Set<Long> categoryIds = new HashSet<>(dishService.getCategoryIdsByIds(Lists.newArrayList(dishDTO.getId())));
         dishService.updateWithFlavors(dishDTO);
+        categoryIds.add(dishDTO.getCategoryId());
 
-        //修改菜品分类时比较复杂，不是经常性操作，将所有的菜品缓存数据清理，所有以dish_开头的key
-        clearCache("dish_*");
+        cleanCache(categoryIds);
 
         return Result.success();
     }
@@ -117,8 +122,8 @@ public class DishController {
         log.info("启售、停售菜品：{},{}",status,id);
         dishService.setStatus(status,id);
 
-        //将所有的菜品缓存数据清理，所有以dish_开头的key
-        clearCache("dish_*");
+        //只清理该菜品所属分类的缓存数据
+        cleanCache(dishService.getCategoryIdsByIds(Lists.newArrayList(id)));
 
         return Result.success();
     }
@@ -137,9 +142,17 @@ public class DishController {
         return Result.success(dishes);
     }
 
-    private void clearCache(String pattern){
-        Set keys = redisTemplate.keys(pattern);
-        redisTemplate.delete(keys);
+    /**
+     * 清理指定分类的菜品缓存数据
+     * @param categoryIds
+     */
+    private void cleanCache(Collection<Long> categoryIds){
+        Cache cache = cacheManager.getCache("dishCache");
+        for (Long categoryId : categoryIds) {
+            if (categoryId != null) {
+                cache.evict(categoryId);
+            }
+        }
     }
 }
 
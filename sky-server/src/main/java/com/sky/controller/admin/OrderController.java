@@ -1,7 +1,12 @@
 package com.sky.controller.admin;
 
+import com.sky.constant.MessageConstant;
+import com.sky.context.BaseContext;
 import com.sky.dto.*;
 import com.sky.entity.OrderDetail;
+import com.sky.exception.OrderBusinessException;
+import com.sky.order.OrderFeed;
+import com.sky.result.CursorPageResult;
 import com.sky.result.PageResult;
 import com.sky.result.Result;
 import com.sky.service.OrderService;
@@ -11,9 +16,13 @@ import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Slf4j
 @RestController
@@ -23,6 +32,8 @@ public class OrderController {
 
     @Autowired
     private OrderService orderService;
+    @Autowired
+    private OrderFeed orderFeed;
 
 
     /**
@@ -38,6 +49,19 @@ public class OrderController {
         return Result.success(pageResult);
     }
 
+    /**
+     * 管理端订单条件游标分页查询，不统计总数，翻页深度不影响查询速度
+     * @param ordersPageQueryDTO cursor为上一页返回的游标，查询第一页时不传
+     * @return
+     */
+    @GetMapping("/conditionSearch/cursor")
+    @ApiOperation("管理端订单条件游标分页查询")
+    public Result<CursorPageResult> conditionCursorQuery(OrdersPageQueryDTO ordersPageQueryDTO){
+        log.info("管理端订单条件游标分页查询：{}",ordersPageQueryDTO);
+        CursorPageResult cursorPageResult = orderService.conditionCursorQuery(ordersPageQueryDTO);
+        return Result.success(cursorPageResult);
+    }
+
     /**
      * 各个状态的订单数量统计
      * @return
@@ -50,6 +74,42 @@ public class OrderController {
         return Result.success(orderStatisticsVO);
     }
 
+    /**
+     * 获取订单看板增量推送的一次性票据，票据短时间内有效
+     * @return
+     */
+    @PostMapping("/feed/ticket")
+    @ApiOperation("获取订单看板增量推送票据")
+    public Result<String> feedTicket(){
+        log.info("获取订单看板增量推送票据");
+        return Result.success(orderFeed.createTicket(BaseContext.getCurrentId()));
+    }
+
+    /**
+     * 订单看板增量推送（SSE），首次连接先推送快照，之后只推送订单变更事件
+     * 浏览器的EventSource无法设置请求头，连接时通过查询参数带上一次性票据，例如：/admin/order/feed?ticket=xxx；
+     * 票据只能使用一次，断线后重新获取票据，并通过lastEventId参数带上最后收到的事件id
+     * @param lastEventId 断线重连时最后收到的事件id，浏览器自动重连时通过Last-Event-ID请求头带上
+     * @param lastEventIdParam 重新创建连接时通过查询参数带上的最后收到的事件id
+     * @return
+     */
+    @GetMapping(value = "/feed", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @ApiOperation("订单看板增量推送")
+    public SseEmitter feed(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+                           @RequestParam(value = "lastEventId", required = false) String lastEventIdParam){
+        if (lastEventId == null) {
+            lastEventId = lastEventIdParam;
+        }
+        log.info("订阅订单看板增量推送：{}", lastEventId);
+        return orderFeed.subscribe(lastEventId, () -> {
+            //快照包含各状态订单数量和第一页订单
+            Map<String, Object> snapshot = new HashMap<>();
+            snapshot.put("statistics", orderService.statistics());
+            snapshot.put("orders", orderService.conditionCursorQuery(new OrdersPageQueryDTO()));
+            return snapshot;
+        });
+    }
+
     /**
      * 查询订单详情
      * @param id
@@ -131,22 +191,56 @@ public class OrderController {
 
     }
 
+    /**
+     * 批量接单
+     * @param ordersBatchDTO
+     * @return 实际接单的订单id
+     */
+    @PutMapping("/batch/confirm")
+    @ApiOperation("批量接单")
+    public Result<List<Long>> confirmBatch(@RequestBody OrdersBatchDTO ordersBatchDTO){
+        log.info("批量接单：{}",ordersBatchDTO);
+        checkBatchSize(ordersBatchDTO);
+        List<Long> ids = orderService.confirmBatch(ordersBatchDTO.getIds());
+        return Result.success(ids);
+    }
 
+    /**
+     * 批量派送订单
+     * @param ordersBatchDTO
+     * @return 实际派送的订单id
+     */
+    @PutMapping("/batch/delivery")
+    @ApiOperation("批量派送订单")
+    public Result<List<Long>> deliveryBatch(@RequestBody OrdersBatchDTO ordersBatchDTO){
+        log.info("批量派送订单：{}",ordersBatchDTO);
+        checkBatchSize(ordersBatchDTO);
+        List<Long> ids = orderService.deliveryBatch(ordersBatchDTO.getIds());
+        return Result.success(ids);
+    }
 
+    /**
+     * 批量完成订单
+     * @param ordersBatchDTO
+     * @return 实际完成的订单id
+     */
+    @PutMapping("/batch/complete")
+    @ApiOperation("批量完成订单")
+    public Result<List<Long>> completeBatch(@RequestBody OrdersBatchDTO ordersBatchDTO){
+        log.info("批量完成订单：{}",ordersBatchDTO);
+        checkBatchSize(ordersBatchDTO);
+        List<Long> ids = orderService.completeBatch(ordersBatchDTO.getIds());
+        return Result.success(ids);
+    }
 
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
+    /**
+     * 管理端批量操作限制订单数，定时任务按sky.order-task.batch-size分批，不受此限制
+     * @param ordersBatchDTO
+     */
+    private void checkBatchSize(OrdersBatchDTO ordersBatchDTO) {
+        List<Long> ids = ordersBatchDTO.getIds();
+        if (ids != null && ids.size() > OrdersBatchDTO.MAX_SIZE) {
+            throw new OrderBusinessException(MessageConstant.ORDER_BATCH_TOO_LARGE);
+        }
+    }
 }
@@ -88,13 +88,22 @@ public class ReportController {
     }
 
     /**
-     * 导出运营数据报表
+     * 导出运营数据报表，未指定时间范围时导出近30天的数据
+     * @param begin
+     * @param end
      * @param httpServletResponse
      */
     @GetMapping("/export")
     @ApiOperation("导出运营数据报表")
-    public void export(HttpServletResponse httpServletResponse){
-        reportService.exportBusinessData(httpServletResponse);
+    public void export(@DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate begin,
+                       @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate end,
+                       HttpServletResponse httpServletResponse){
+        if (begin == null || end == null) {
+            begin = LocalDate.now().minusDays(30);
+            end = LocalDate.now().minusDays(1);
+        }
+        log.info("导出运营数据报表：{},{}",begin,end);
+        reportService.exportBusinessData(begin,end,httpServletResponse);
     }
 
 
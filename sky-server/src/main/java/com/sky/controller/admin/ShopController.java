@@ -1,11 +1,12 @@
 package com.sky.controller.admin;
 
+import com.sky.constant.StatusConstant;
 import com.sky.result.Result;
+import com.sky.service.ShopService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.web.bind.annotation.*;
 
 @RestController("adminShopController")
@@ -14,10 +15,8 @@ import org.springframework.web.bind.annotation.*;
 @Api(tags = "商家查询操作店铺相关接口")
 public class ShopController {
 
-    public static final String key = "SHOP_STATUS";
-
     @Autowired
-    private RedisTemplate redisTemplate;
+    private ShopService shopService;
 
     /**
      * 设置店铺营业状态
@@ -27,8 +26,8 @@ public class ShopController {
     @PutMapping("/{status}")
     @ApiOperation("设置店铺营业状态")
     public Result setStatus(@PathVariable Integer status){
-        log.info("设置店铺营业状态为：{}",status==1?"营业中":"打烊中");
-        redisTemplate.opsForValue().set(key,status);
+        log.info("设置店铺营业状态为：{}",StatusConstant.ENABLE.equals(status)?"营业中":"打烊中");
+        shopService.setStatus(status);
         return Result.success();
     }
 
@@ -36,8 +35,8 @@ public class ShopController {
     @GetMapping("/status")
     @ApiOperation("获取店铺营业状态")
     public Result<Integer> getStatus(){
-       Integer status = (Integer) redisTemplate.opsForValue().get(key);
-        log.info("获取店铺营业状态为：{}", status==1?"营业中":"打烊中");
+        Integer status = shopService.getStatus();
+        log.info("获取店铺营业状态为：{}", StatusConstant.ENABLE.equals(status)?"营业中":"打烊中");
         return Result.success(status);
     }
 
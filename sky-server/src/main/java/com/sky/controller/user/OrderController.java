@@ -2,6 +2,7 @@ package com.sky.controller.user;
 
 import com.sky.dto.OrdersPaymentDTO;
 import com.sky.dto.OrdersSubmitDTO;
+import com.sky.result.CursorPageResult;
 import com.sky.result.PageResult;
 import com.sky.result.Result;
 import com.sky.service.OrderService;
@@ -67,6 +68,21 @@ public class OrderController {
         return Result.success(pageResult);
     }
 
+    /**
+     * 历史订单游标分页查询，不统计总数，翻页深度不影响查询速度
+     * @param cursor 上一页返回的游标，查询第一页时不传
+     * @param pageSize
+     * @param status
+     * @return
+     */
+    @GetMapping("/historyOrders/cursor")
+    @ApiOperation("游标分页查询历史订单")
+    public Result<CursorPageResult> cursorQuery(String cursor, Integer pageSize, Integer status){
+        log.info("历史订单游标分页查询：{}", cursor);
+        CursorPageResult cursorPageResult = orderService.cursorQuery4User(cursor,pageSize,status);
+        return Result.success(cursorPageResult);
+    }
+
     /**
      * 查询历史订单详情
      * @param id
@@ -0,0 +1,47 @@
+package com.sky.interceptor;
+
+import com.sky.context.BaseContext;
+import com.sky.order.OrderFeed;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * 订单看板增量推送的票据校验拦截器，浏览器的EventSource无法设置请求头，只能在地址中带上一次性票据
+ */
+@Component
+@Slf4j
+public class OrderFeedTicketInterceptor implements HandlerInterceptor {
+
+    @Autowired
+    private OrderFeed orderFeed;
+
+    /**
+     * 校验并使用票据
+     *
+     * @param request
+     * @param response
+     * @param handler
+     * @return
+     */
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!(handler instanceof HandlerMethod)) {
+            return true;
+        }
+
+        Long empId = orderFeed.consumeTicket(request.getParameter("ticket"));
+        if (empId == null) {
+            //票据无效或已使用，响应401状态码
+            response.setStatus(401);
+            return false;
+        }
+        log.info("当前员工id：{}", empId);
+        BaseContext.setCurrentId(empId);
+        return true;
+    }
+}
@@ -0,0 +1,58 @@
+package com.sky.mapper;
+
+import com.sky.dto.DailyStatisticsDTO;
+import com.sky.entity.DailyBusinessStats;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Mapper;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Mapper
+public interface DailyBusinessStatsMapper {
+
+    /**
+     * 批量累加汇总数据，不存在时插入，只累加已有覆盖标记的日期
+     * @param statsList
+     */
+    void increaseBatch(List<DailyBusinessStats> statsList);
+
+    /**
+     * 将订单从原状态的汇总数据转移到新状态，订单日期和金额直接从订单表读取，只转移已有覆盖标记的日期
+     * @param orderIds
+     * @param fromStatus
+     * @param toStatus
+     */
+    void transferByOrderIds(List<Long> orderIds, Integer fromStatus, Integer toStatus);
+
+    /**
+     * 按天查询区间内的订单总数、有效订单数和营业额，只返回有覆盖标记的日期
+     * @param beginDate
+     * @param endDate
+     * @param status 有效订单的状态
+     * @return
+     */
+    List<DailyStatisticsDTO> getDailyStatistics(LocalDate beginDate, LocalDate endDate, Integer status);
+
+    /**
+     * 删除区间内的汇总数据
+     * @param beginDate
+     * @param endDate
+     */
+    @Delete("delete from daily_business_stats where stat_date >= #{beginDate} and stat_date <= #{endDate}")
+    void deleteByDate(LocalDate beginDate, LocalDate endDate);
+
+    /**
+     * 根据订单表重新生成区间内的汇总数据
+     * @param beginTime
+     * @param endTime
+     */
+    void insertFromOrders(LocalDateTime beginTime, LocalDateTime endTime);
+
+    /**
+     * 插入覆盖标记，表示这些日期的汇总数据已根据订单表生成
+     * @param dates
+     */
+    void insertCoveredBatch(List<LocalDate> dates);
+}
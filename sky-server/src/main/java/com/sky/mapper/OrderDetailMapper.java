@@ -1,9 +1,11 @@
 package com.sky.mapper;
 
+import com.sky.dto.ItemSalesDTO;
 import com.sky.entity.OrderDetail;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Select;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Mapper
@@ -14,4 +16,29 @@ public interface OrderDetailMapper {
     @Select("select * from order_detail where order_id = #{order_id}")
     List<OrderDetail> getByOrderId(Long ordersId);
 
+    /**
+     * 根据订单id批量查询订单明细
+     * @param orderIds
+     * @return
+     */
+    List<OrderDetail> getByOrderIds(List<Long> orderIds);
+
+    /**
+     * 按下单日期和商品统计指定状态订单的销量
+     * @param orderIds 为空时不限制订单
+     * @param beginTime 下单时间的起点，可以为空
+     * @param endTime 下单时间的终点，可以为空
+     * @param status 订单状态
+     * @return
+     */
+    List<ItemSalesDTO> getItemSales(List<Long> orderIds, LocalDateTime beginTime, LocalDateTime endTime, Integer status);
+
+
+    /**
+     * 按订单和商品统计指定状态订单的销量
+     * @param orderIds
+     * @param status 订单状态
+     * @return
+     */
+    List<ItemSalesDTO> getOrderItemSales(List<Long> orderIds, Integer status);
 }
@@ -1,13 +1,14 @@
 package com.sky.mapper;
 
 import com.github.pagehelper.Page;
-import com.sky.dto.GoodsSalesDTO;
+import com.sky.dto.DailyStatisticsDTO;
+import com.sky.dto.OrderStatusCountDTO;
 import com.sky.dto.OrdersPageQueryDTO;
 import com.sky.entity.Orders;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Select;
-import org.apache.ibatis.annotations.Update;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
@@ -33,25 +34,89 @@ public interface OrderMapper {
      */
     void update(Orders orders);
 
-    @Update("update orders set status = #{orderStatus},pay_status = #{orderPaidStatus} ,checkout_time = #{check_out_time} where id = #{id}")
-    void updateStatus(Integer orderStatus, Integer orderPaidStatus, LocalDateTime check_out_time, Long id);
-
     Page<Orders> pageQuery(OrdersPageQueryDTO ordersPageQueryDTO);
 
+    /**
+     * 游标分页查询，按下单时间、id倒序返回游标位置之后的订单，不统计总数
+     * @param query 查询条件
+     * @param cursorTime 上一页最后一个订单的下单时间，为空时查询第一页
+     * @param cursorId 上一页最后一个订单的id
+     * @param limit
+     * @return
+     */
+    List<Orders> cursorQuery(OrdersPageQueryDTO query, LocalDateTime cursorTime, Long cursorId, Integer limit);
+
     @Select("select * from orders where id = #{id}")
     Orders getByOrderId(Long id);
 
-    @Select("select count(*) from orders where status = #{status}")
-    Integer countStatus(Integer status);
+    /**
+     * 按id顺序查询id大于指定值的订单，每次最多返回limit条
+     * @param id
+     * @param limit
+     * @return
+     */
+    @Select("select * from orders where id > #{id} order by id limit #{limit}")
+    List<Orders> getByIdGreaterThan(Long id, Integer limit);
+
+    /**
+     * 按状态分组统计订单数量
+     * @param beginTime 下单时间的起点，为空时统计全部订单
+     * @return
+     */
+    List<OrderStatusCountDTO> countGroupByStatus(LocalDateTime beginTime);
 
     /**
-     * 查找状态为未支付，且下单时间为15分钟之前的订单
+     * 查询订单的下单日期，每个订单返回一行
+     * @param ids
+     * @return
+     */
+    List<LocalDate> getOrderDatesByIds(List<Long> ids);
+
+    /**
+     * 查找指定状态且下单时间早于指定时间的订单id，每次最多返回limit条
      * @param status
      * @param time
+     * @param limit
+     * @return
+     */
+    @Select("select id from orders where status = #{status} and order_time < #{time} order by id limit #{limit}")
+    List<Long> getIdsByStatusAndOrderTimeLT(Integer status, LocalDateTime time, Integer limit);
+
+    /**
+     * 查找指定状态且在时间区间内下单的订单，只包含id和下单时间
+     * @param status
+     * @param beginTime
+     * @param endTime
      * @return
      */
-    @Select("select * from orders where status = #{status} and order_time < #{time}")
-    List<Orders> getByStatusAndOrderTimeOutLT(Integer status, LocalDateTime time);
+    @Select("select id, order_time from orders where status = #{status} " +
+            "and order_time >= #{beginTime} and order_time <= #{endTime}")
+    List<Orders> getByStatusAndOrderTime(Integer status, LocalDateTime beginTime, LocalDateTime endTime);
+
+    /**
+     * 根据id查询仍处于指定状态的订单id，并锁定这些行直到事务结束
+     * @param ids
+     * @param status
+     * @return
+     */
+    List<Long> getIdsByStatusForUpdate(List<Long> ids, Integer status);
+
+    /**
+     * 查询处于指定状态之一的订单的当前状态，并锁定该行直到事务结束
+     * @param id
+     * @param statuses
+     * @return 订单不存在或不处于这些状态时返回null
+     */
+    Integer getStatusForUpdate(Long id, List<Integer> statuses);
+
+    /**
+     * 将仍处于指定状态之一的订单批量修改为新状态
+     * @param ids
+     * @param fromStatuses 修改前必须处于的状态
+     * @param orders 修改后的状态及相关字段
+     * @return 实际修改的订单数
+     */
+    int updateStatusBatch(List<Long> ids, List<Integer> fromStatuses, Orders orders);
 
     /**
      * 根据动态条件统计当天营业额数据
@@ -67,6 +132,11 @@ public interface OrderMapper {
      */
     Integer countByMap(Map map);
 
-    List<GoodsSalesDTO> getTop10Sales(LocalDateTime beginTime, LocalDateTime endTime);
+    /**
+     * 按天分组统计指定区间内的订单总数、有效订单数和营业额
+     * @param map
+     * @return
+     */
+    List<DailyStatisticsDTO> getDailyStatistics(Map map);
 
 }
@@ -0,0 +1,16 @@
+package com.sky.mapper;
+
+import com.sky.entity.OrderSearchTerm;
+import org.apache.ibatis.annotations.Mapper;
+
+import java.util.List;
+
+@Mapper
+public interface OrderSearchMapper {
+
+    /**
+     * 批量插入搜索索引项，已存在的忽略
+     * @param termList
+     */
+    void insertBatch(List<OrderSearchTerm> termList);
+}
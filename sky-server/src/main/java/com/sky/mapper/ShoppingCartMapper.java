@@ -4,10 +4,10 @@ import com.sky.entity.ShoppingCart;
 import org.apache.ibatis.annotations.Delete;
 import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Select;
 import org.apache.ibatis.annotations.Update;
 
 import java.util.List;
-import java.util.stream.Stream;
 
 @Mapper
 public interface ShoppingCartMapper {
@@ -20,18 +20,35 @@ public interface ShoppingCartMapper {
     List<ShoppingCart> list(ShoppingCart shoppingCart);
 
     /**
-     * 根据id修改商品数量
+     * 购物车中已有的商品数量加1
      * @param shoppingCart
+     * @return 影响的行数，为0表示购物车中没有该商品
      */
-    @Update("update shopping_cart set number = #{number} where id =#{id}")
-    void update(ShoppingCart shoppingCart);
+    @Update("update shopping_cart set number = number + 1 where user_id = #{userId} " +
+            "and dish_id <=> #{dishId} and setmeal_id <=> #{setmealId} and dish_flavor <=> #{dishFlavor}")
+    int increaseNumber(ShoppingCart shoppingCart);
 
     /**
-     * 插入购物车数据
+     * 商品数量大于1时减1
+     * @param shoppingCart
+     * @return 影响的行数，数量为1或购物车中没有该商品时为0
+     */
+    @Update("update shopping_cart set number = number - 1 where user_id = #{userId} " +
+            "and dish_id <=> #{dishId} and setmeal_id <=> #{setmealId} and dish_flavor <=> #{dishFlavor} and number > 1")
+    int decreaseNumber(ShoppingCart shoppingCart);
+
+    /**
+     * 商品数量为1时从购物车中删除
+     * @param shoppingCart
+     */
+    @Delete("delete from shopping_cart where user_id = #{userId} " +
+            "and dish_id <=> #{dishId} and setmeal_id <=> #{setmealId} and dish_flavor <=> #{dishFlavor} and number <= 1")
+    void deleteLine(ShoppingCart shoppingCart);
+
+    /**
+     * 插入购物车数据，商品已存在时累加数量
      * @param shoppingCart
      */
-    @Insert("insert into shopping_cart (name, image, user_id, dish_id, setmeal_id, dish_flavor, number, amount, create_time) " +
-            "values (#{name},#{image},#{userId},#{dishId},#{setmealId},#{dishFlavor},#{number},#{amount},#{createTime})")
     void insert(ShoppingCart shoppingCart);
 
     /**
@@ -42,15 +59,39 @@ public interface ShoppingCartMapper {
     void deleteByUserId(Long userId);
 
     /**
-     * 根据id删除购物车中的商品
-     * @param id
+     * 批量插入购物车数据，商品已存在时累加数量
+     * @param shoppingCartList
      */
-    @Delete("delete from shopping_cart where id = #{id}")
-    void deleteById(Long id);
+    void insertBatch(List<ShoppingCart> shoppingCartList);
 
     /**
-     * 批量插入购物车数据
-     * @param shoppingCartList
+     * 查询用户购物车最后一次写回数据库的版本
+     * @param userId
+     * @return 从未写回过时返回null
      */
-    void insertBatch(List<ShoppingCart> shoppingCartList);
+    @Select("select version from shopping_cart_version where user_id = #{userId}")
+    Long getVersion(Long userId);
+
+    /**
+     * 用户没有版本记录时插入版本0
+     * @param userId
+     */
+    @Insert("insert ignore into shopping_cart_version (user_id, version) values (#{userId}, 0)")
+    void insertVersionIfAbsent(Long userId);
+
+    /**
+     * 查询并锁住用户购物车的版本记录
+     * @param userId
+     * @return
+     */
+    @Select("select version from shopping_cart_version where user_id = #{userId} for update")
+    long getVersionForUpdate(Long userId);
+
+    /**
+     * 更新用户购物车写回数据库的版本
+     * @param userId
+     * @param version
+     */
+    @Update("update shopping_cart_version set version = #{version} where user_id = #{userId}")
+    void updateVersion(Long userId, Long version);
 }
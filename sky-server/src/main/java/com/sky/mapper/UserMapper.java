@@ -1,9 +1,11 @@
 package com.sky.mapper;
 
+import com.sky.dto.DailyStatisticsDTO;
 import com.sky.entity.User;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Select;
 
+import java.util.List;
 import java.util.Map;
 
 @Mapper
@@ -22,4 +24,11 @@ public interface UserMapper {
      * @return
      */
     Integer countUser(Map map);
+
+    /**
+     * 按天分组统计指定区间内的新增用户数量
+     * @param map
+     * @return
+     */
+    List<DailyStatisticsDTO> countNewUserByDay(Map map);
 }
@@ -0,0 +1,57 @@
+package com.sky.order;
+
+import com.sky.constant.MessageConstant;
+import com.sky.entity.Orders;
+import com.sky.exception.OrderBusinessException;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * 订单游标分页的游标，记录上一页最后一个订单的下单时间和id
+ * 订单按下单时间、id倒序排列，下一页从该位置之后开始查询
+ */
+@Data
+@AllArgsConstructor
+public class OrderCursor {
+
+    private static final String SEPARATOR = "|";
+
+    private LocalDateTime orderTime;
+
+    private Long id;
+
+    public static OrderCursor of(Orders orders) {
+        return new OrderCursor(orders.getOrderTime(), orders.getId());
+    }
+
+    /**
+     * 编码为前端透传的字符串
+     * @return
+     */
+    public String encode() {
+        String value = orderTime + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析前端传入的游标
+     * @param cursor
+     * @return 游标为空时返回null，表示查询第一页
+     */
+    public static OrderCursor decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int index = value.lastIndexOf(SEPARATOR);
+            return new OrderCursor(LocalDateTime.parse(value.substring(0, index)), Long.valueOf(value.substring(index + 1)));
+        } catch (RuntimeException e) {
+            throw new OrderBusinessException(MessageConstant.ORDER_CURSOR_ERROR);
+        }
+    }
+}
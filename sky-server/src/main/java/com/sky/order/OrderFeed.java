@@ -0,0 +1,497 @@
+package com.sky.order;
+
+import com.alibaba.fastjson.JSON;
+import com.sky.entity.Orders;
+import com.sky.properties.OrderFeedProperties;
+import com.sky.utils.TransactionUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.Limit;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.stream.StreamMessageListenerContainer;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * 订单看板的增量推送
+ * 下单和状态流转提交后写入有长度上限的Redis Stream，每个节点用一个后台线程读取并通过SSE推送给本节点的看板；
+ * 新连接先收到一份快照，之后只收到增量事件；事件id即Stream中的id，
+ * 断线重连时带上最后收到的id即可继续，id已不在Stream中时重新发送快照。
+ * 读取线程只把事件放入每个连接的有界队列，由发送线程池发送，每个任务只发送一个事件后重新排队，各连接轮流发送；
+ * 队列已满或单个事件发送超时时断开连接，由客户端带上最后收到的id重连。
+ * SseEmitter.send在客户端不读取时会一直阻塞，超时的发送线程不再计入线程数，线程池补充一个线程，其他连接不受影响
+ */
+@Slf4j
+@Component
+public class OrderFeed implements OrderTransitionListener {
+
+    public static final String STREAM_KEY = "sky:order:feed";
+    private static final String TICKET_KEY = "sky:order:feed:ticket:";
+    private static final String FIELD = "event";
+    private static final String SNAPSHOT = "snapshot";
+    private static final String ORDER = "order";
+    private static final MediaType TEXT_UTF8 = new MediaType("text", "plain", StandardCharsets.UTF_8);
+
+    //KEYS: Stream  ARGV: 最大长度, 事件
+    private static final DefaultRedisScript<String> ADD_SCRIPT = new DefaultRedisScript<>(
+            "return redis.call('xadd', KEYS[1], 'MAXLEN', '~', ARGV[1], '*', '" + FIELD + "', ARGV[2])",
+            String.class);
+
+    //KEYS: 票据  读取后删除，票据只能使用一次
+    private static final DefaultRedisScript<String> CONSUME_TICKET_SCRIPT = new DefaultRedisScript<>(
+            "local value = redis.call('get', KEYS[1]) " +
+            "if value then redis.call('del', KEYS[1]) end " +
+            "return value",
+            String.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private RedisConnectionFactory redisConnectionFactory;
+    @Autowired
+    private OrderFeedProperties orderFeedProperties;
+
+    private final Set<FeedClient> clients = new CopyOnWriteArraySet<>();
+    private StreamMessageListenerContainer<String, MapRecord<String, String, String>> container;
+    //SseEmitter.send是阻塞的，在独立的线程池中发送，发送超时的线程不计入核心线程数
+    private ThreadPoolExecutor sender;
+    //定时检查发送超时的连接
+    private ScheduledExecutorService watchdog;
+
+    @PostConstruct
+    public void init() {
+        initSender();
+
+        container = StreamMessageListenerContainer.create(redisConnectionFactory);
+        //只读取启动之后的事件，之前的事件在客户端重连时按需读取
+        //Redis暂时不可用时保持订阅，恢复后继续读取
+        StreamMessageListenerContainer.StreamReadRequest<String> request = StreamMessageListenerContainer.StreamReadRequest
+                .builder(StreamOffset.create(STREAM_KEY, ReadOffset.latest()))
+                .cancelOnError(e -> false)
+                .build();
+        container.register(request, record -> dispatch(record.getId(), record.getValue().get(FIELD)));
+        container.start();
+    }
+
+    void initSender() {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("order-feed-sender-");
+        threadFactory.setDaemon(true);
+        int threads = orderFeedProperties.getSenderThreads();
+        sender = new ThreadPoolExecutor(threads, Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), threadFactory);
+
+        CustomizableThreadFactory watchdogThreadFactory = new CustomizableThreadFactory("order-feed-watchdog-");
+        watchdogThreadFactory.setDaemon(true);
+        watchdog = Executors.newSingleThreadScheduledExecutor(watchdogThreadFactory);
+        long period = Math.max(1, orderFeedProperties.getSendTimeoutMillis() / 2);
+        watchdog.scheduleWithFixedDelay(this::checkSendTimeout, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (container != null) {
+            container.stop();
+        }
+        clients.forEach(client -> client.close(null));
+        watchdog.shutdownNow();
+        sender.shutdown();
+    }
+
+    /**
+     * 将Stream中读取到的事件推送给本节点的所有连接
+     * @param id
+     * @param event
+     */
+    void dispatch(RecordId id, String event) {
+        clients.forEach(client -> client.send(id, event));
+    }
+
+    SseEmitter createEmitter() {
+        return new SseEmitter(orderFeedProperties.getTimeoutMillis());
+    }
+
+    /**
+     * 记录新下的订单，事务提交后写入
+     * @param orders
+     */
+    public void recordCreate(Orders orders) {
+        OrderFeedEvent event = OrderFeedEvent.builder()
+                .type(OrderFeedEvent.Type.CREATED)
+                .orderIds(Collections.singletonList(orders.getId()))
+                .toStatus(orders.getStatus())
+                .build();
+        //事务回滚时不推送
+        TransactionUtils.afterCommit(() -> publish(event));
+    }
+
+    /**
+     * 订单状态流转的事务提交后写入一个事件，批量流转的订单合并为一个事件
+     * @param orderIds 本次流转的订单id
+     * @param fromStatus 流转前的状态
+     * @param toStatus 流转后的状态
+     */
+    public void afterCommit(List<Long> orderIds, Integer fromStatus, Integer toStatus) {
+        boolean paid = Orders.PENDING_PAYMENT.equals(fromStatus) && Orders.TO_BE_CONFIRMED.equals(toStatus);
+        publish(OrderFeedEvent.builder()
+                .type(paid ? OrderFeedEvent.Type.PAID : OrderFeedEvent.Type.STATUS_CHANGED)
+                .orderIds(orderIds)
+                .fromStatus(fromStatus)
+                .toStatus(toStatus)
+                .build());
+    }
+
+    /**
+     * 生成订阅增量事件的一次性票据，票据放在SSE地址中，有效期很短，避免长期有效的令牌出现在地址和日志中
+     * @param empId 当前员工id
+     * @return
+     */
+    public String createTicket(Long empId) {
+        String ticket = UUID.randomUUID().toString().replace("-", "");
+        stringRedisTemplate.opsForValue().set(TICKET_KEY + ticket, empId.toString(),
+                orderFeedProperties.getTicketTtlSeconds(), TimeUnit.SECONDS);
+        return ticket;
+    }
+
+    /**
+     * 使用票据，每个票据只能使用一次
+     * @param ticket
+     * @return 生成票据的员工id，票据无效或已使用时返回null
+     */
+    public Long consumeTicket(String ticket) {
+        if (ticket == null || ticket.isEmpty()) {
+            return null;
+        }
+        String empId = stringRedisTemplate.execute(CONSUME_TICKET_SCRIPT, Collections.singletonList(TICKET_KEY + ticket));
+        return empId == null ? null : Long.valueOf(empId);
+    }
+
+    /**
+     * 订阅增量事件
+     * @param lastEventId 断线前最后收到的事件id，首次连接时为空
+     * @param snapshotSupplier 需要发送快照时调用，返回看板的完整数据
+     * @return
+     */
+    public SseEmitter subscribe(String lastEventId, Supplier<Object> snapshotSupplier) {
+        SseEmitter emitter = createEmitter();
+        FeedClient client = new FeedClient(emitter);
+        emitter.onCompletion(() -> clients.remove(client));
+        emitter.onTimeout(() -> clients.remove(client));
+        emitter.onError(e -> clients.remove(client));
+
+        //先登记，登记后到达的事件暂存在连接中；读取历史事件或生成快照时不持有连接的锁，
+        //完成后按顺序放入发送队列，暂存的事件由发送位置去重，不会遗漏也不会重复
+        clients.add(client);
+        try {
+            RecordId lastId = parse(lastEventId);
+            List<MapRecord<String, Object, Object>> records = lastId != null && isRetained(lastId)
+                    ? getRecordsAfter(lastId) : null;
+            //需要重放的事件超过队列容量时，重新发送快照比逐条重放更快
+            if (records != null && records.size() < orderFeedProperties.getQueueCapacity()) {
+                client.start(lastId, null, records);
+            } else {
+                //先确定快照对应的位置，再生成快照，之后的事件都会推送
+                RecordId latest = getLatestId();
+                FeedMessage snapshot = new FeedMessage(latest.getValue(), SNAPSHOT, JSON.toJSONString(snapshotSupplier.get()));
+                client.start(latest, snapshot, Collections.emptyList());
+            }
+        } catch (RuntimeException e) {
+            clients.remove(client);
+            throw e;
+        }
+        return emitter;
+    }
+
+    private List<MapRecord<String, Object, Object>> getRecordsAfter(RecordId lastId) {
+        List<MapRecord<String, Object, Object>> records = stringRedisTemplate.opsForStream().range(STREAM_KEY,
+                Range.rightUnbounded(Range.Bound.inclusive(lastId.getValue())),
+                Limit.limit().count((int) orderFeedProperties.getMaxLength()));
+        return records == null ? Collections.emptyList() : records;
+    }
+
+    /**
+     * 判断指定的事件之后的事件是否都还保留在Stream中
+     * @param lastId
+     * @return
+     */
+    private boolean isRetained(RecordId lastId) {
+        List<MapRecord<String, Object, Object>> first = stringRedisTemplate.opsForStream()
+                .range(STREAM_KEY, Range.unbounded(), Limit.limit().count(1));
+        if (first == null || first.isEmpty()) {
+            //Stream为空，只有从未写入过事件时才能继续
+            return lastId.getTimestamp() == 0;
+        }
+        return compare(lastId, first.get(0).getId()) >= 0;
+    }
+
+    private RecordId getLatestId() {
+        List<MapRecord<String, Object, Object>> last = stringRedisTemplate.opsForStream()
+                .reverseRange(STREAM_KEY, Range.unbounded(), Limit.limit().count(1));
+        return last == null || last.isEmpty() ? RecordId.of(0, 0) : last.get(0).getId();
+    }
+
+    private void publish(OrderFeedEvent event) {
+        try {
+            stringRedisTemplate.execute(ADD_SCRIPT, Collections.singletonList(STREAM_KEY),
+                    String.valueOf(orderFeedProperties.getMaxLength()), JSON.toJSONString(event));
+        } catch (Exception e) {
+            //看板错过的事件在下次重新加载快照时得到修正
+            log.error("写入订单增量事件失败：{}", event, e);
+        }
+    }
+
+    private void checkSendTimeout() {
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(orderFeedProperties.getSendTimeoutMillis());
+        long now = System.nanoTime();
+        clients.forEach(client -> client.checkSendTimeout(now, timeoutNanos));
+    }
+
+    /**
+     * 调整发送线程池的核心线程数，发送超时的线程被阻塞期间由新线程代替
+     * @param delta
+     */
+    private synchronized void adjustSenderThreads(int delta) {
+        sender.setCorePoolSize(sender.getCorePoolSize() + delta);
+    }
+
+    private RecordId parse(String id) {
+        if (id == null || id.isEmpty()) {
+            return null;
+        }
+        try {
+            return RecordId.of(id);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static int compare(RecordId a, RecordId b) {
+        int result = Long.compare(a.getTimestamp(), b.getTimestamp());
+        return result != 0 ? result : Long.compare(a.getSequence(), b.getSequence());
+    }
+
+    /**
+     * 一个看板连接，记录已经放入队列的位置，避免重放和实时推送重复发送同一个事件
+     */
+    private class FeedClient {
+        private final SseEmitter emitter;
+        private final BlockingQueue<FeedMessage> queue;
+        //是否有发送线程正在处理该连接
+        private final AtomicBoolean sending = new AtomicBoolean(false);
+        private RecordId lastId;
+        //开始推送前到达的实时事件，开始推送后为null
+        private List<FeedMessage> buffered = new ArrayList<>();
+        private volatile boolean closed;
+        private Exception closeError;
+        //以下字段由writeLock保护：当前事件开始发送的时间（未在发送时为0）、当前发送是否已超时
+        private final Object writeLock = new Object();
+        private long writeStartedAt;
+        private boolean timedOut;
+
+        private FeedClient(SseEmitter emitter) {
+            this.emitter = emitter;
+            this.queue = new ArrayBlockingQueue<>(orderFeedProperties.getQueueCapacity());
+        }
+
+        private synchronized void send(RecordId id, String event) {
+            if (event == null) {
+                return;
+            }
+            if (buffered != null) {
+                buffered.add(new FeedMessage(id.getValue(), ORDER, event));
+                return;
+            }
+            enqueueIfNew(id, event);
+        }
+
+        /**
+         * 先放入快照或历史事件，再放入暂存的实时事件，之后的事件直接放入队列
+         * @param position 快照对应的位置或最后收到的事件id
+         * @param snapshot 快照，继续推送时为null
+         * @param records 需要重放的历史事件
+         */
+        private synchronized void start(RecordId position, FeedMessage snapshot,
+                                        List<MapRecord<String, Object, Object>> records) {
+            lastId = position;
+            if (snapshot != null) {
+                enqueue(snapshot);
+            }
+            for (MapRecord<String, Object, Object> record : records) {
+                Object event = record.getValue().get(FIELD);
+                if (event != null) {
+                    enqueueIfNew(record.getId(), event.toString());
+                }
+            }
+            for (FeedMessage message : buffered) {
+                enqueueIfNew(RecordId.of(message.id), message.data);
+            }
+            buffered = null;
+        }
+
+        private void enqueueIfNew(RecordId id, String event) {
+            if (lastId != null && compare(id, lastId) <= 0) {
+                return;
+            }
+            lastId = id;
+            enqueue(new FeedMessage(id.getValue(), ORDER, event));
+        }
+
+        private void enqueue(FeedMessage message) {
+            if (closed) {
+                return;
+            }
+            if (!queue.offer(message)) {
+                //客户端接收过慢，断开后由客户端从最后收到的事件重连
+                log.warn("订单看板连接接收过慢，断开连接");
+                close(null);
+                return;
+            }
+            if (sending.compareAndSet(false, true)) {
+                schedule();
+            }
+        }
+
+        private void schedule() {
+            try {
+                sender.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                //应用正在关闭
+                close(null);
+            }
+        }
+
+        /**
+         * 每次只发送一个事件，还有待发送的事件时重新排队，避免积压较多的连接长时间占用发送线程
+         */
+        private void drain() {
+            FeedMessage message = closed ? null : queue.poll();
+            if (message != null) {
+                sendRaw(message);
+            }
+            if (!closed && !queue.isEmpty()) {
+                schedule();
+                return;
+            }
+            sending.set(false);
+            //释放发送标记后可能有新消息入队，再检查一次
+            if (!closed && !queue.isEmpty() && sending.compareAndSet(false, true)) {
+                schedule();
+            }
+        }
+
+        private void sendRaw(FeedMessage message) {
+            synchronized (writeLock) {
+                if (closed) {
+                    return;
+                }
+                writeStartedAt = System.nanoTime();
+            }
+            Exception error = null;
+            try {
+                //消息转换器中Jackson排在最前，字符串需指定为文本，避免再次被序列化
+                emitter.send(SseEmitter.event().id(message.id).name(message.name).data(message.data, TEXT_UTF8));
+            } catch (IOException | IllegalStateException e) {
+                error = e;
+            }
+            boolean closedWhileWriting;
+            synchronized (writeLock) {
+                writeStartedAt = 0;
+                if (timedOut) {
+                    timedOut = false;
+                    adjustSenderThreads(-1);
+                }
+                closedWhileWriting = closed;
+            }
+            if (closedWhileWriting) {
+                //发送期间连接已断开，SseEmitter的方法与send互斥，由发送线程结束连接
+                complete(error != null ? error : closeError);
+            } else if (error != null) {
+                close(error);
+            }
+        }
+
+        /**
+         * 单个事件发送超时时断开连接，被阻塞的发送线程由新线程代替
+         * @param now
+         * @param timeoutNanos
+         */
+        private void checkSendTimeout(long now, long timeoutNanos) {
+            synchronized (writeLock) {
+                if (writeStartedAt == 0 || timedOut || now - writeStartedAt < timeoutNanos) {
+                    return;
+                }
+                timedOut = true;
+                adjustSenderThreads(1);
+            }
+            log.warn("订单看板连接发送超时，断开连接");
+            close(new IOException("发送超时"));
+        }
+
+        private void close(Exception e) {
+            boolean writing;
+            synchronized (writeLock) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                closeError = e;
+                writing = writeStartedAt != 0;
+            }
+            clients.remove(this);
+            queue.clear();
+            //正在发送时调用SseEmitter会等待发送结束，由发送线程在发送结束后结束连接
+            if (!writing) {
+                complete(e);
+            }
+        }
+
+        private void complete(Exception e) {
+            if (e == null) {
+                emitter.complete();
+            } else {
+                emitter.completeWithError(e);
+            }
+        }
+    }
+
+    private static class FeedMessage {
+        private final String id;
+        private final String name;
+        private final String data;
+
+        private FeedMessage(String id, String name, String data) {
+            this.id = id;
+            this.name = name;
+            this.data = data;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.sky.order;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 订单增量事件，推送给订单看板
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderFeedEvent {
+
+    public enum Type {
+        /**
+         * 用户下单
+         */
+        CREATED,
+
+        /**
+         * 用户支付
+         */
+        PAID,
+
+        /**
+         * 其他状态变更
+         */
+        STATUS_CHANGED
+    }
+
+    private Type type;
+
+    //本次变更的订单id
+    private List<Long> orderIds;
+
+    //变更前的状态，新订单为空
+    private Integer fromStatus;
+
+    //变更后的状态
+    private Integer toStatus;
+}
@@ -0,0 +1,138 @@
+package com.sky.order;
+
+import com.sky.dto.OrdersPageQueryDTO;
+import com.sky.entity.OrderSearchTerm;
+import com.sky.entity.Orders;
+import com.sky.mapper.OrderMapper;
+import com.sky.mapper.OrderSearchMapper;
+import com.sky.properties.OrderSearchProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 订单搜索索引
+ * 下单时把订单号、手机号、收货人的每个后缀写入order_search_term表，
+ * 查询时把模糊匹配转换为后缀上的前缀范围查询，避免对订单表全表扫描。
+ * 历史订单的索引在启动时从上次中断的订单id继续补建，补建完成前查询仍使用订单表上的LIKE匹配
+ */
+@Slf4j
+@Component
+public class OrderSearchIndex implements ApplicationRunner {
+
+    //与order_search_term.term的长度一致，超出部分不建索引
+    private static final int MAX_TERM_LENGTH = 64;
+    //补建进度，last-id为已补建的最大订单id，complete存在表示补建完成
+    private static final String BACKFILL_KEY = "sky:order-search:backfill";
+    private static final String LAST_ID_FIELD = "last-id";
+    private static final String COMPLETE_FIELD = "complete";
+
+    //补建完成后不会再变回未完成，缓存在本地避免每次查询都访问Redis
+    private volatile boolean complete;
+
+    @Autowired
+    private OrderSearchMapper orderSearchMapper;
+    @Autowired
+    private OrderMapper orderMapper;
+    @Autowired
+    private OrderSearchProperties orderSearchProperties;
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 为订单建立搜索索引，需要与插入订单在同一事务中调用
+     * @param orders
+     */
+    public void add(Orders orders) {
+        List<OrderSearchTerm> termList = new ArrayList<>();
+        addTerms(termList, orders, OrderSearchTerm.NUMBER, orders.getNumber());
+        addTerms(termList, orders, OrderSearchTerm.PHONE, orders.getPhone());
+        addTerms(termList, orders, OrderSearchTerm.CONSIGNEE, orders.getConsignee());
+        if (!termList.isEmpty()) {
+            orderSearchMapper.insertBatch(termList);
+        }
+    }
+
+    /**
+     * 整理查询条件：去掉首尾空白，转义LIKE中的通配符，并根据索引是否补建完成选择查询方式
+     * @param ordersPageQueryDTO
+     */
+    public void normalize(OrdersPageQueryDTO ordersPageQueryDTO) {
+        ordersPageQueryDTO.setNumber(escape(ordersPageQueryDTO.getNumber()));
+        ordersPageQueryDTO.setPhone(escape(ordersPageQueryDTO.getPhone()));
+        ordersPageQueryDTO.setConsignee(escape(ordersPageQueryDTO.getConsignee()));
+        ordersPageQueryDTO.setSearchIndexed(isComplete());
+    }
+
+    /**
+     * 历史订单的索引是否已经补建完成
+     * @return
+     */
+    public boolean isComplete() {
+        if (!complete) {
+            complete = Boolean.TRUE.equals(stringRedisTemplate.opsForHash().hasKey(BACKFILL_KEY, COMPLETE_FIELD));
+        }
+        return complete;
+    }
+
+    /**
+     * 开启补建时，在后台从上次的进度开始按id顺序为历史订单建立索引，已存在的索引项会被忽略
+     * @param args
+     */
+    public void run(ApplicationArguments args) {
+        if (!orderSearchProperties.isBackfill() || isComplete()) {
+            return;
+        }
+        Thread thread = new Thread(this::backfill, "order-search-backfill");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void backfill() {
+        Object savedLastId = stringRedisTemplate.opsForHash().get(BACKFILL_KEY, LAST_ID_FIELD);
+        long lastId = savedLastId == null ? 0 : Long.parseLong(savedLastId.toString());
+        long count = 0;
+        log.info("开始补建订单搜索索引，从订单id：{}之后开始", lastId);
+        try {
+            List<Orders> ordersList;
+            while (!(ordersList = orderMapper.getByIdGreaterThan(lastId, orderSearchProperties.getBackfillBatchSize())).isEmpty()) {
+                for (Orders orders : ordersList) {
+                    add(orders);
+                }
+                lastId = ordersList.get(ordersList.size() - 1).getId();
+                count += ordersList.size();
+                stringRedisTemplate.opsForHash().put(BACKFILL_KEY, LAST_ID_FIELD, String.valueOf(lastId));
+            }
+            //启动后新下的订单在下单时已建立索引，处理完当前最大id即补建完成
+            stringRedisTemplate.opsForHash().put(BACKFILL_KEY, COMPLETE_FIELD, "1");
+            complete = true;
+            log.info("订单搜索索引补建完成，本次处理{}个订单", count);
+        } catch (Exception e) {
+            log.error("补建订单搜索索引失败，已处理到订单id：{}", lastId, e);
+        }
+    }
+
+    private void addTerms(List<OrderSearchTerm> termList, Orders orders, Integer field, String value) {
+        if (value == null) {
+            return;
+        }
+        value = value.trim();
+        for (int i = 0; i < value.length(); i++) {
+            String term = value.substring(i, Math.min(value.length(), i + MAX_TERM_LENGTH));
+            termList.add(new OrderSearchTerm(field, term, orders.getId()));
+        }
+    }
+
+    private String escape(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        return value.trim().replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
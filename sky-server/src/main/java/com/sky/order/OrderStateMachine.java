@@ -0,0 +1,97 @@
+package com.sky.order;
+
+import com.sky.entity.Orders;
+import com.sky.mapper.OrderMapper;
+import com.sky.utils.TransactionUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 订单状态机
+ * 单个订单的流转是一条带原状态条件的UPDATE，根据影响行数判断是否流转成功，并发流转时只有一个能成功；
+ * 允许多个原状态时需要知道实际的原状态，才先用SELECT ... FOR UPDATE锁定并读取；
+ * 流转成功后在事务中通知所有监听器，并统一注册一次事务提交后的回调
+ */
+@Slf4j
+@Component
+public class OrderStateMachine {
+
+    @Autowired
+    private OrderMapper orderMapper;
+    @Autowired(required = false)
+    private List<OrderTransitionListener> listeners = Collections.emptyList();
+
+    /**
+     * 流转单个订单
+     * 只有一个允许的原状态时只执行一条UPDATE，原状态即为该状态；
+     * 有多个允许的原状态时先锁定订单读取原状态，再执行UPDATE
+     * @param orders 订单id及流转后的状态和相关字段
+     * @param allowedFrom 允许流转的原状态
+     * @return 流转前的状态，订单不存在或不处于允许的状态时返回null
+     */
+    @Transactional
+    public Integer transition(Orders orders, Integer... allowedFrom) {
+        List<Long> ids = Collections.singletonList(orders.getId());
+        List<Integer> fromStatuses = Arrays.asList(allowedFrom);
+        Integer fromStatus;
+        if (allowedFrom.length == 1) {
+            fromStatus = allowedFrom[0];
+        } else {
+            fromStatus = orderMapper.getStatusForUpdate(orders.getId(), fromStatuses);
+            if (fromStatus == null) {
+                return null;
+            }
+        }
+        if (orderMapper.updateStatusBatch(ids, fromStatuses, orders) == 0) {
+            return null;
+        }
+        notifyListeners(ids, fromStatus, orders.getStatus());
+        return fromStatus;
+    }
+
+    /**
+     * 批量流转订单
+     * 先锁定仍处于原状态的订单，再用一条带状态条件的语句统一修改，其余订单保持不变
+     * @param ids
+     * @param fromStatus 流转前必须处于的状态
+     * @param orders 流转后的状态及相关字段
+     * @return 实际流转的订单id
+     */
+    @Transactional
+    public List<Long> transitionBatch(List<Long> ids, Integer fromStatus, Orders orders) {
+        if (ids == null || ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Long> transitionIds = orderMapper.getIdsByStatusForUpdate(ids, fromStatus);
+        if (transitionIds == null || transitionIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        orderMapper.updateStatusBatch(transitionIds, Collections.singletonList(fromStatus), orders);
+        notifyListeners(transitionIds, fromStatus, orders.getStatus());
+        return transitionIds;
+    }
+
+    private void notifyListeners(List<Long> ids, Integer fromStatus, Integer toStatus) {
+        for (OrderTransitionListener listener : listeners) {
+            listener.afterTransition(ids, fromStatus, toStatus);
+        }
+        List<Long> committedIds = new ArrayList<>(ids);
+        TransactionUtils.afterCommit(() -> {
+            //订单已经流转，一个监听器失败不影响其他监听器
+            for (OrderTransitionListener listener : listeners) {
+                try {
+                    listener.afterCommit(committedIds, fromStatus, toStatus);
+                } catch (Exception e) {
+                    log.error("订单状态流转后处理失败：{} {}", listener.getClass().getSimpleName(), committedIds, e);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,181 @@
+package com.sky.order;
+
+import com.sky.dto.OrderStatusCountDTO;
+import com.sky.entity.Orders;
+import com.sky.mapper.OrderMapper;
+import com.sky.utils.TransactionUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 基于Redis哈希表的订单状态计数
+ * 全部订单按状态计数保存在一个哈希表中，每天的订单再按下单日期单独计数，
+ * 下单和状态流转提交后原子地修改计数，工作台和订单统计接口只需读取一个哈希表；
+ * 计数由定时任务根据订单表校正
+ */
+@Slf4j
+@Component
+public class OrderStatusCounter implements OrderTransitionListener {
+
+    //全部订单的状态计数
+    private static final String TOTAL_KEY = "sky:order:status-count";
+    //按下单日期的状态计数，例如：sky:order:status-count:2024-01-01
+    private static final String DAILY_KEY_PREFIX = "sky:order:status-count:";
+    //按天计数只用于工作台展示当天数据，保留两天覆盖跨零点的状态流转
+    private static final long DAILY_TTL_SECONDS = 2 * 24 * 60 * 60;
+    //所有订单状态，校正时没有订单的状态写入0
+    private static final List<Integer> STATUSES = Arrays.asList(Orders.PENDING_PAYMENT, Orders.TO_BE_CONFIRMED,
+            Orders.CONFIRMED, Orders.DELIVERY_IN_PROGRESS, Orders.COMPLETED, Orders.CANCELLED);
+
+    //KEYS: 全部订单计数, 当天订单计数  ARGV: 原状态（新订单为空）, 新状态, 订单数, 过期秒数
+    //计数哈希表不存在时跳过，不生成只有部分状态的计数，下次读取时根据订单表重新统计
+    private static final DefaultRedisScript<Long> TRANSFER_SCRIPT = new DefaultRedisScript<>(
+            "local n = tonumber(ARGV[3]) " +
+            "for i = 1, 2 do " +
+            "  if redis.call('exists', KEYS[i]) == 1 then " +
+            "    if ARGV[1] ~= '' then redis.call('hincrby', KEYS[i], ARGV[1], -n) end " +
+            "    redis.call('hincrby', KEYS[i], ARGV[2], n) " +
+            "    if i == 2 then redis.call('expire', KEYS[2], ARGV[4]) end " +
+            "  end " +
+            "end " +
+            "return 1", Long.class);
+
+    //KEYS: 计数哈希表  ARGV: 过期秒数（0表示不过期）, 状态1, 数量1, 状态2, 数量2 ...
+    private static final DefaultRedisScript<Long> RESET_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('del', KEYS[1]) " +
+            "for i = 2, #ARGV, 2 do redis.call('hset', KEYS[1], ARGV[i], ARGV[i + 1]) end " +
+            "if tonumber(ARGV[1]) > 0 then redis.call('expire', KEYS[1], ARGV[1]) end " +
+            "return 1", Long.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private OrderMapper orderMapper;
+
+    /**
+     * 记录新下的订单
+     * @param orders
+     */
+    public void recordCreate(Orders orders) {
+        Map<LocalDate, Integer> dateCounts = Collections.singletonMap(orders.getOrderTime().toLocalDate(), 1);
+        //事务回滚时不修改计数
+        TransactionUtils.afterCommit(() -> transfer(dateCounts, null, orders.getStatus()));
+    }
+
+    /**
+     * 订单状态流转的事务提交后，按下单日期把订单从原状态的计数转移到新状态
+     * 下单日期在提交后查询，不占用流转的事务
+     * @param orderIds 本次流转的订单id
+     * @param fromStatus 流转前的状态
+     * @param toStatus 流转后的状态
+     */
+    public void afterCommit(List<Long> orderIds, Integer fromStatus, Integer toStatus) {
+        if (fromStatus.equals(toStatus)) {
+            return;
+        }
+        Map<LocalDate, Integer> dateCounts = new HashMap<>();
+        orderMapper.getOrderDatesByIds(orderIds).forEach(date -> dateCounts.merge(date, 1, Integer::sum));
+        transfer(dateCounts, fromStatus, toStatus);
+    }
+
+    /**
+     * 查询全部订单中各状态的数量
+     * @return 状态 -> 数量
+     */
+    public Map<Integer, Integer> getTotal() {
+        Map<Integer, Integer> counts = read(TOTAL_KEY);
+        if (counts == null) {
+            //计数不存在（例如Redis数据丢失），立即校正
+            return reconcileTotal();
+        }
+        return counts;
+    }
+
+    /**
+     * 查询当天下单的订单中各状态的数量
+     * @return 状态 -> 数量
+     */
+    public Map<Integer, Integer> getToday() {
+        Map<Integer, Integer> counts = read(getDailyKey(LocalDate.now()));
+        if (counts == null) {
+            return reconcileToday();
+        }
+        return counts;
+    }
+
+    /**
+     * 根据订单表重新生成全部订单和当天订单的计数
+     * 校正期间提交的状态流转可能产生少量偏差，由下一次校正修正
+     */
+    public void reconcile() {
+        reconcileTotal();
+        reconcileToday();
+    }
+
+    private Map<Integer, Integer> reconcileTotal() {
+        return reset(TOTAL_KEY, orderMapper.countGroupByStatus(null), 0);
+    }
+
+    private Map<Integer, Integer> reconcileToday() {
+        LocalDate today = LocalDate.now();
+        return reset(getDailyKey(today), orderMapper.countGroupByStatus(LocalDateTime.of(today, LocalTime.MIN)),
+                DAILY_TTL_SECONDS);
+    }
+
+    private Map<Integer, Integer> reset(String key, List<OrderStatusCountDTO> countList, long ttlSeconds) {
+        Map<Integer, Integer> counts = new TreeMap<>();
+        STATUSES.forEach(status -> counts.put(status, 0));
+        countList.forEach(count -> counts.put(count.getStatus(), count.getOrderCount()));
+
+        List<String> args = new ArrayList<>();
+        args.add(String.valueOf(ttlSeconds));
+        counts.forEach((status, count) -> {
+            args.add(status.toString());
+            args.add(count.toString());
+        });
+        stringRedisTemplate.execute(RESET_SCRIPT, Collections.singletonList(key), args.toArray());
+        return counts;
+    }
+
+    private void transfer(Map<LocalDate, Integer> dateCounts, Integer fromStatus, Integer toStatus) {
+        dateCounts.forEach((date, count) -> {
+            try {
+                stringRedisTemplate.execute(TRANSFER_SCRIPT, Arrays.asList(TOTAL_KEY, getDailyKey(date)),
+                        fromStatus == null ? "" : fromStatus.toString(), toStatus.toString(),
+                        count.toString(), String.valueOf(DAILY_TTL_SECONDS));
+            } catch (Exception e) {
+                //订单已经提交，计数失败不影响业务，由定时校正修正
+                log.error("修改订单状态计数失败：{} {} -> {}", date, fromStatus, toStatus, e);
+            }
+        });
+    }
+
+    private Map<Integer, Integer> read(String key) {
+        Map<Object, Object> entries = stringRedisTemplate.opsForHash().entries(key);
+        if (entries.isEmpty()) {
+            return null;
+        }
+        Map<Integer, Integer> counts = new TreeMap<>();
+        STATUSES.forEach(status -> counts.put(status, 0));
+        entries.forEach((status, count) -> counts.put(Integer.valueOf(status.toString()), Integer.valueOf(count.toString())));
+        return counts;
+    }
+
+    private String getDailyKey(LocalDate date) {
+        return DAILY_KEY_PREFIX + date;
+    }
+}
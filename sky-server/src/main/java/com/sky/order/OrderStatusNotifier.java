@@ -0,0 +1,33 @@
+package com.sky.order;
+
+import com.sky.webSocket.WebSocketServer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 订单状态变更后，向订阅了这些订单的WebSocket客户端推送新状态
+ */
+@Slf4j
+@Component
+public class OrderStatusNotifier implements OrderTransitionListener {
+
+    @Autowired
+    private WebSocketServer webSocketServer;
+
+    /**
+     * 事务提交后整批发布一次，各节点只为有订阅者的订单推送
+     * @param orderIds 本次流转的订单id
+     * @param fromStatus 流转前的状态
+     * @param toStatus 流转后的状态
+     */
+    public void afterCommit(List<Long> orderIds, Integer fromStatus, Integer toStatus) {
+        try {
+            webSocketServer.publishOrderStatus(orderIds, toStatus);
+        } catch (Exception e) {
+            log.error("推送订单状态变更失败：{}", orderIds, e);
+        }
+    }
+}
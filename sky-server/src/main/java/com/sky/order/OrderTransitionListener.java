@@ -0,0 +1,29 @@
+package com.sky.order;
+
+import java.util.List;
+
+/**
+ * 订单状态流转监听器，由订单状态机在流转成功后调用
+ * afterTransition与状态修改在同一个事务中执行，抛出异常会使本次流转回滚，用于需要与订单一起提交的数据库修改；
+ * afterCommit在事务提交后执行，事务回滚时不执行，用于Redis、推送等事务外的操作，抛出的异常只记录日志
+ */
+public interface OrderTransitionListener {
+
+    /**
+     * 订单状态流转后，在同一个事务中调用
+     * @param orderIds 本次流转的订单id
+     * @param fromStatus 流转前的状态
+     * @param toStatus 流转后的状态
+     */
+    default void afterTransition(List<Long> orderIds, Integer fromStatus, Integer toStatus) {
+    }
+
+    /**
+     * 订单状态流转所在的事务提交后调用
+     * @param orderIds 本次流转的订单id
+     * @param fromStatus 流转前的状态
+     * @param toStatus 流转后的状态
+     */
+    default void afterCommit(List<Long> orderIds, Integer fromStatus, Integer toStatus) {
+    }
+}
@@ -0,0 +1,77 @@
+package com.sky.queue;
+
+import com.sky.entity.Orders;
+import com.sky.properties.OrderTaskProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.ZoneId;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 订单支付超时延迟队列
+ * 待付款订单以支付截止时间为分数保存在Redis有序集合中，到期后由定时任务取出并批量取消
+ */
+@Component
+public class OrderTimeoutQueue {
+
+    private static final String KEY = "sky:order:timeout";
+
+    //取出并删除到期的订单id，多个节点同时消费时每个订单只会被一个节点取到
+    private static final DefaultRedisScript<List> POLL_SCRIPT = new DefaultRedisScript<>(
+            "local ids = redis.call('zrangebyscore', KEYS[1], '-inf', ARGV[1], 'LIMIT', 0, ARGV[2]) " +
+            "if #ids > 0 then redis.call('zrem', KEYS[1], unpack(ids)) end " +
+            "return ids", List.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private OrderTaskProperties orderTaskProperties;
+
+    /**
+     * 登记订单的支付截止时间
+     * @param orders
+     */
+    public void add(Orders orders) {
+        long deadline = orders.getOrderTime()
+                .plusMinutes(orderTaskProperties.getPayTimeoutMinutes())
+                .atZone(ZoneId.systemDefault())
+                .toInstant()
+                .toEpochMilli();
+        stringRedisTemplate.opsForZSet().add(KEY, orders.getId().toString(), deadline);
+    }
+
+    /**
+     * 重新登记处理失败的订单，立即到期
+     * @param orderIds
+     */
+    public void retry(List<Long> orderIds) {
+        long now = System.currentTimeMillis();
+        orderIds.forEach(id -> stringRedisTemplate.opsForZSet().add(KEY, id.toString(), now));
+    }
+
+    /**
+     * 订单已支付或已取消，无须再等待超时
+     * @param orderId
+     */
+    public void remove(Long orderId) {
+        stringRedisTemplate.opsForZSet().remove(KEY, orderId.toString());
+    }
+
+    /**
+     * 取出一批已到期的订单id
+     * @return
+     */
+    public List<Long> poll() {
+        List<String> ids = stringRedisTemplate.execute(POLL_SCRIPT, Collections.singletonList(KEY),
+                String.valueOf(System.currentTimeMillis()), String.valueOf(orderTaskProperties.getBatchSize()));
+        if (ids == null || ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return ids.stream().map(Long::valueOf).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,31 @@
+package com.sky.service;
+
+import com.sky.dto.DailyStatisticsDTO;
+import com.sky.entity.Orders;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface BusinessStatsService {
+
+    /**
+     * 记录新下的订单
+     * @param orders
+     */
+    void recordCreate(Orders orders);
+
+    /**
+     * 按天查询区间内的订单总数、有效订单数和营业额，今天之前读取汇总表（汇总表中没有的日期统计订单表），今天实时统计
+     * @param begin
+     * @param end
+     * @return
+     */
+    List<DailyStatisticsDTO> getDailyStatistics(LocalDate begin, LocalDate end);
+
+    /**
+     * 根据订单表重新生成区间内的汇总数据
+     * @param begin
+     * @param end
+     */
+    void rebuild(LocalDate begin, LocalDate end);
+}
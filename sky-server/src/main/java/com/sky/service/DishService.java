@@ -69,5 +69,12 @@ public interface DishService {
      */
     List<Dish> list(Long categoryId);
 
+    /**
+     * 根据菜品id查询菜品所属的分类id
+     * @param ids
+     * @return
+     */
+    List<Long> getCategoryIdsByIds(List<Long> ids);
+
 
 }
@@ -1,12 +1,15 @@
 package com.sky.service;
 
 import com.sky.dto.*;
+import com.sky.result.CursorPageResult;
 import com.sky.result.PageResult;
 import com.sky.vo.OrderPaymentVO;
 import com.sky.vo.OrderStatisticsVO;
 import com.sky.vo.OrderSubmitVO;
 import com.sky.vo.OrderVO;
 
+import java.util.List;
+
 public interface OrderService {
     /**
      * 用户下单
@@ -38,6 +41,15 @@ public interface OrderService {
      */
     PageResult pageQuery4User(Integer page, Integer pageSize, Integer status);
 
+    /**
+     * 历史订单游标分页查询
+     * @param cursor 上一页返回的游标，查询第一页时为空
+     * @param pageSize
+     * @param status
+     * @return
+     */
+    CursorPageResult cursorQuery4User(String cursor, Integer pageSize, Integer status);
+
     /**
      * 查询历史订单详情
      * @param id
@@ -66,6 +78,13 @@ public interface OrderService {
      */
     PageResult conditionQuery(OrdersPageQueryDTO ordersPageQueryDTO);
 
+    /**
+     * 管理端订单条件游标分页查询
+     * @param ordersPageQueryDTO
+     * @return
+     */
+    CursorPageResult conditionCursorQuery(OrdersPageQueryDTO ordersPageQueryDTO);
+
     /**
      * 各个状态的订单数量统计
      * @return
@@ -108,4 +127,32 @@ public interface OrderService {
      * @param id
      */
     void reminder(Long id);
+
+    /**
+     * 批量接单
+     * @param ids
+     * @return 实际接单的订单id
+     */
+    List<Long> confirmBatch(List<Long> ids);
+
+    /**
+     * 批量派送订单
+     * @param ids
+     * @return 实际派送的订单id
+     */
+    List<Long> deliveryBatch(List<Long> ids);
+
+    /**
+     * 批量完成订单
+     * @param ids
+     * @return 实际完成的订单id
+     */
+    List<Long> completeBatch(List<Long> ids);
+
+    /**
+     * 批量取消支付超时的订单
+     * @param ids
+     * @return 实际取消的订单id
+     */
+    List<Long> cancelTimeoutOrders(List<Long> ids);
 }
@@ -39,8 +39,10 @@ public interface ReportService {
     SalesTop10ReportVO getTop10Sales(LocalDate begin, LocalDate end);
 
     /**
-     * 导出近30天运营数据报表
+     * 导出指定时间范围内的运营数据报表
+     * @param begin
+     * @param end
      * @param httpServletResponse
      */
-    void exportBusinessData(HttpServletResponse httpServletResponse);
+    void exportBusinessData(LocalDate begin, LocalDate end, HttpServletResponse httpServletResponse);
 }
@@ -0,0 +1,31 @@
+package com.sky.service;
+
+import com.sky.dto.GoodsSalesDTO;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface SalesRankService {
+
+    /**
+     * 查询区间内已完成订单中销量最高的商品，返回的商品数由配置决定
+     * @param begin
+     * @param end
+     * @return
+     */
+    List<GoodsSalesDTO> getTopSales(LocalDate begin, LocalDate end);
+
+    /**
+     * 根据订单明细重新生成区间内每天的销量数据
+     * @param begin
+     * @param end
+     */
+    void rebuild(LocalDate begin, LocalDate end);
+
+    /**
+     * 只为Redis中不存在的日期生成销量数据
+     * @param begin
+     * @param end
+     */
+    void rebuildMissing(LocalDate begin, LocalDate end);
+}
@@ -0,0 +1,22 @@
+package com.sky.service;
+
+public interface ShopService {
+
+    /**
+     * 设置店铺营业状态
+     * @param status
+     */
+    void setStatus(Integer status);
+
+    /**
+     * 获取店铺营业状态
+     * @return
+     */
+    Integer getStatus();
+
+    /**
+     * 从Redis重新加载店铺营业状态
+     */
+    void refreshStatus();
+
+}
@@ -0,0 +1,133 @@
+package com.sky.service.impl;
+
+import com.sky.dto.DailyStatisticsDTO;
+import com.sky.entity.DailyBusinessStats;
+import com.sky.entity.Orders;
+import com.sky.mapper.DailyBusinessStatsMapper;
+import com.sky.mapper.OrderMapper;
+import com.sky.order.OrderTransitionListener;
+import com.sky.service.BusinessStatsService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@Service
+@Slf4j
+public class BusinessStatsServiceImpl implements BusinessStatsService, OrderTransitionListener {
+
+    @Autowired
+    private DailyBusinessStatsMapper dailyBusinessStatsMapper;
+    @Autowired
+    private OrderMapper orderMapper;
+
+    /**
+     * 记录新下的订单
+     * @param orders
+     */
+    public void recordCreate(Orders orders) {
+        List<DailyBusinessStats> statsList = new ArrayList<>();
+        statsList.add(buildStats(orders, orders.getStatus(), 1));
+        dailyBusinessStatsMapper.increaseBatch(statsList);
+    }
+
+    /**
+     * 订单状态流转后，原状态减去这些订单，新状态加上这些订单
+     * @param orderIds 本次流转的订单id
+     * @param fromStatus 流转前的状态
+     * @param toStatus 流转后的状态
+     */
+    public void afterTransition(List<Long> orderIds, Integer fromStatus, Integer toStatus) {
+        if (fromStatus.equals(toStatus)) {
+            return;
+        }
+        dailyBusinessStatsMapper.transferByOrderIds(orderIds, fromStatus, toStatus);
+    }
+
+    /**
+     * 按天查询区间内的订单总数、有效订单数和营业额，今天之前读取汇总表（没有覆盖标记的日期统计订单表），今天实时统计
+     * @param begin
+     * @param end
+     * @return
+     */
+    public List<DailyStatisticsDTO> getDailyStatistics(LocalDate begin, LocalDate end) {
+        LocalDate today = LocalDate.now();
+        List<DailyStatisticsDTO> list = new ArrayList<>();
+
+        //今天之前的数据已经汇总，直接读取汇总表
+        if (begin.isBefore(today)) {
+            LocalDate rollupEnd = end.isBefore(today) ? end : today.minusDays(1);
+            List<DailyStatisticsDTO> rollupList = dailyBusinessStatsMapper.getDailyStatistics(begin, rollupEnd, Orders.COMPLETED);
+            list.addAll(rollupList);
+
+            //没有覆盖标记的日期（例如汇总表上线前、尚未补建的日期）从订单表统计，所有这样的日期只查询一次
+            Set<LocalDate> coveredDates = new HashSet<>();
+            rollupList.forEach(dto -> coveredDates.add(dto.getStatDate()));
+            List<LocalDate> uncoveredDates = new ArrayList<>();
+            for (LocalDate date = begin; !date.isAfter(rollupEnd); date = date.plusDays(1)) {
+                if (!coveredDates.contains(date)) {
+                    uncoveredDates.add(date);
+                }
+            }
+            if (!uncoveredDates.isEmpty()) {
+                list.addAll(getDailyStatisticsFromOrders(uncoveredDates.get(0), uncoveredDates.get(uncoveredDates.size() - 1), uncoveredDates));
+            }
+        }
+
+        //今天的数据仍在变化，实时统计
+        if (!begin.isAfter(today) && !end.isBefore(today)) {
+            list.addAll(getDailyStatisticsFromOrders(today, today, null));
+        }
+        return list;
+    }
+
+    /**
+     * 根据订单表重新生成区间内的汇总数据，并为每一天插入覆盖标记（包括没有订单的日期）
+     * @param begin
+     * @param end
+     */
+    @Transactional
+    public void rebuild(LocalDate begin, LocalDate end) {
+        log.info("重新生成运营数据汇总：{}至{}", begin, end);
+        dailyBusinessStatsMapper.deleteByDate(begin, end);
+        dailyBusinessStatsMapper.insertFromOrders(LocalDateTime.of(begin, LocalTime.MIN), LocalDateTime.of(end, LocalTime.MAX));
+        List<LocalDate> dates = new ArrayList<>();
+        for (LocalDate date = begin; !date.isAfter(end); date = date.plusDays(1)) {
+            dates.add(date);
+        }
+        dailyBusinessStatsMapper.insertCoveredBatch(dates);
+    }
+
+    /**
+     * 从订单表按天统计，dates不为空时只统计其中的日期
+     */
+    private List<DailyStatisticsDTO> getDailyStatisticsFromOrders(LocalDate begin, LocalDate end, List<LocalDate> dates) {
+        Map map = new HashMap();
+        map.put("beginTime", LocalDateTime.of(begin, LocalTime.MIN));
+        map.put("endTime", LocalDateTime.of(end, LocalTime.MAX));
+        map.put("dates", dates);
+        map.put("status", Orders.COMPLETED);
+        return orderMapper.getDailyStatistics(map);
+    }
+
+    private DailyBusinessStats buildStats(Orders orders, Integer status, int delta) {
+        BigDecimal amount = orders.getAmount() == null ? BigDecimal.ZERO : orders.getAmount();
+        return DailyBusinessStats.builder()
+                .statDate(orders.getOrderTime().toLocalDate())
+                .status(status)
+                .orderCount(delta)
+                .amount(amount.multiply(BigDecimal.valueOf(delta)))
+                .build();
+    }
+}
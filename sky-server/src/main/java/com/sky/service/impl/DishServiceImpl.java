@@ -27,6 +27,8 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 
 @Service
@@ -111,12 +113,7 @@ public class DishServiceImpl implements DishService {
      */
     public DishVO getByIdWothFlavors(Long id) {
         Dish dish = dishMapper.getById(id);
-        List<DishFlavor> dishFlavors = dishFlavorMapper.getByDishId(id);
-
-        DishVO dishVO = new DishVO();
-        BeanUtils.copyProperties(dish,dishVO);
-        dishVO.setFlavors(dishFlavors);
-        return dishVO;
+        return getDishVOList(Lists.newArrayList(dish)).get(0);
     }
 
     /**
@@ -194,17 +191,29 @@ public class DishServiceImpl implements DishService {
      */
     public List<DishVO> listWithFlavor(Dish dish) {
         List<Dish> dishList = dishMapper.list(dish);
+        return getDishVOList(dishList);
+    }
 
+    /**
+     * 将菜品列表转换为包含口味的DishVO列表，所有菜品的口味只查询一次
+     * @param dishList
+     * @return
+     */
+    private List<DishVO> getDishVOList(List<Dish> dishList) {
         List<DishVO> dishVOList = new ArrayList<>();
+        if (dishList == null || dishList.isEmpty()) {
+            return dishVOList;
+        }
+
+        //根据菜品id批量查询口味，并按菜品id分组
+        List<Long> dishIds = dishList.stream().map(Dish::getId).collect(Collectors.toList());
+        Map<Long, List<DishFlavor>> flavorMap = dishFlavorMapper.getByDishIds(dishIds).stream()
+                .collect(Collectors.groupingBy(DishFlavor::getDishId));
 
         for (Dish d : dishList) {
             DishVO dishVO = new DishVO();
             BeanUtils.copyProperties(d,dishVO);
-
-            //根据菜品id查询对应的口味
-            List<DishFlavor> flavors = dishFlavorMapper.getByDishId(d.getId());
-
-            dishVO.setFlavors(flavors);
+            dishVO.setFlavors(flavorMap.getOrDefault(d.getId(), new ArrayList<>()));
             dishVOList.add(dishVO);
         }
 
@@ -224,6 +233,15 @@ public class DishServiceImpl implements DishService {
         return dishMapper.list(dish);
     }
 
+    /**
+     * 根据菜品id查询菜品所属的分类id
+     * @param ids
+     * @return
+     */
+    public List<Long> getCategoryIdsByIds(List<Long> ids) {
+        return dishMapper.getCategoryIdsByIds(ids);
+    }
+
 
 }
 
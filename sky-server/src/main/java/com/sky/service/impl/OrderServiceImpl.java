@@ -1,25 +1,36 @@
 package com.sky.service.impl;
 
-import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONObject;
 import com.github.pagehelper.Page;
 import com.github.pagehelper.PageHelper;
+import com.sky.cart.CartStore;
 import com.sky.constant.MessageConstant;
 import com.sky.context.BaseContext;
 import com.sky.dto.*;
 import com.sky.entity.*;
+import com.sky.enumeration.WebSocketMessageType;
 import com.sky.exception.AddressBookBusinessException;
 import com.sky.exception.OrderBusinessException;
 import com.sky.exception.ShoppingCartBusinessException;
 import com.sky.mapper.*;
+import com.sky.order.OrderCursor;
+import com.sky.order.OrderFeed;
+import com.sky.order.OrderSearchIndex;
+import com.sky.order.OrderStateMachine;
+import com.sky.order.OrderStatusCounter;
+import com.sky.queue.OrderTimeoutQueue;
+import com.sky.result.CursorPageResult;
 import com.sky.result.PageResult;
 import com.sky.result.Result;
+import com.sky.service.BusinessStatsService;
 import com.sky.service.OrderService;
+import com.sky.utils.SnowflakeIdGenerator;
 import com.sky.utils.WeChatPayUtil;
 import com.sky.vo.OrderPaymentVO;
 import com.sky.vo.OrderStatisticsVO;
 import com.sky.vo.OrderSubmitVO;
 import com.sky.vo.OrderVO;
+import com.sky.webSocket.WebSocketMessage;
 import com.sky.webSocket.WebSocketServer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
@@ -30,7 +41,6 @@ import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -42,12 +52,15 @@ import java.util.stream.Collectors;
 @Slf4j
 public class OrderServiceImpl implements OrderService {
 
+    //游标分页未指定每页条数时的默认值
+    private static final int DEFAULT_CURSOR_PAGE_SIZE = 10;
+
     @Autowired
     private OrderMapper orderMapper;
     @Autowired
     private OrderDetailMapper orderDetailMapper;
     @Autowired
-    private ShoppingCartMapper shoppingCartMapper;
+    private CartStore cartStore;
     @Autowired
     private UserMapper userMapper;
     @Autowired
@@ -56,6 +69,20 @@ public class OrderServiceImpl implements OrderService {
     private WeChatPayUtil weChatPayUtil;
     @Autowired
     private WebSocketServer webSocketServer;
+    @Autowired
+    private BusinessStatsService businessStatsService;
+    @Autowired
+    private SnowflakeIdGenerator orderNumberGenerator;
+    @Autowired
+    private OrderTimeoutQueue orderTimeoutQueue;
+    @Autowired
+    private OrderStateMachine orderStateMachine;
+    @Autowired
+    private OrderSearchIndex orderSearchIndex;
+    @Autowired
+    private OrderStatusCounter orderStatusCounter;
+    @Autowired
+    private OrderFeed orderFeed;
     /**
      * 用户下单
      * @param ordersSubmitDTO
@@ -73,10 +100,7 @@ public class OrderServiceImpl implements OrderService {
 
         //判断购物车是否为空
         Long userId = BaseContext.getCurrentId();
-        ShoppingCart shoppingCart = ShoppingCart.builder()
-                .userId(userId)
-                .build();
-        List<ShoppingCart> shoppingCartList = shoppingCartMapper.list(shoppingCart);
+        List<ShoppingCart> shoppingCartList = cartStore.list(userId);
         if (shoppingCartList == null || shoppingCartList.size() == 0){
             throw new ShoppingCartBusinessException(MessageConstant.SHOPPING_CART_IS_NULL);
         }
@@ -86,14 +110,19 @@ public class OrderServiceImpl implements OrderService {
         orders.setOrderTime(LocalDateTime.now());
         orders.setPayStatus(Orders.UN_PAID);
         orders.setStatus(Orders.PENDING_PAYMENT);
-        orders.setNumber(String.valueOf(System.currentTimeMillis()));
+        orders.setNumber(String.valueOf(orderNumberGenerator.nextId()));
         orders.setPhone(addressBook.getPhone());
         orders.setConsignee(addressBook.getConsignee());
         orders.setUserId(userId);
         orders.setAddress(addressBook.getDetail());
 
         orderMapper.insert(orders);
-
+        orderSearchIndex.add(orders);
+        businessStatsService.recordCreate(orders);
+        orderStatusCounter.recordCreate(orders);
+        orderFeed.recordCreate(orders);
+        //登记支付截止时间，超时未支付自动取消
+        orderTimeoutQueue.add(orders);
 
         //向订单明细表插入多条数据
         List<OrderDetail> orderDetailList = new ArrayList();
@@ -107,7 +136,7 @@ public class OrderServiceImpl implements OrderService {
         orderDetailMapper.insertBatch(orderDetailList);
 
         //清空购物车数据
-        shoppingCartMapper.deleteByUserId(userId);
+        cartStore.clean(userId);
 
         //封装返回结果
         OrderSubmitVO orderSubmitVO = OrderSubmitVO.builder()
@@ -147,23 +176,33 @@ public class OrderServiceImpl implements OrderService {
         vo.setPackageStr(jsonObject.getString("package"));*/
 
         Orders ordersDB = orderMapper.getByNumber(ordersPaymentDTO.getOrderNumber());
+        if (ordersDB == null){
+            throw new OrderBusinessException(MessageConstant.ORDER_NOT_FOUND);
+        }
         JSONObject jsonObject = new JSONObject();
         jsonObject.put("code","ORDERPAID");
         OrderPaymentVO vo = jsonObject.toJavaObject(OrderPaymentVO.class);
         vo.setPackageStr(jsonObject.getString("package"));
-        Integer orderPaidStatus = Orders.PAID;//支付状态，已支付
-        Integer orderStatus = Orders.TO_BE_CONFIRMED;  //订单状态，待接单
-        LocalDateTime check_out_time = LocalDateTime.now();//更新支付时间
-        orderMapper.updateStatus(orderStatus, orderPaidStatus, check_out_time, ordersDB.getId());
 
-        //通过webSocket向客户端推送消息 type orderId content
-        Map map = new HashMap();
-        map.put("type",1); // 1表示来单提醒，2表示客户催单
-        map.put("orderId",ordersDB.getId());
-        map.put("content","订单号： " + ordersPaymentDTO.getOrderNumber());
+        //只有待付款的订单可以支付，修改为待接单、已支付并记录支付时间
+        Orders orders = Orders.builder()
+                .id(ordersDB.getId())
+                .status(Orders.TO_BE_CONFIRMED)
+                .payStatus(Orders.PAID)
+                .checkoutTime(LocalDateTime.now())
+                .build();
+        if (orderStateMachine.transition(orders, Orders.PENDING_PAYMENT) == null){
+            throw new OrderBusinessException(MessageConstant.ORDER_STATUS_ERROR);
+        }
+        orderTimeoutQueue.remove(ordersDB.getId());
 
-        String json = JSON.toJSONString(map);
-        webSocketServer.sendToAllClient(json);
+        //通过webSocket向订阅了来单提醒的客户端推送消息
+        WebSocketMessage webSocketMessage = WebSocketMessage.builder()
+                .messageType(WebSocketMessageType.ORDER_NEW)
+                .orderId(ordersDB.getId())
+                .content("订单号： " + ordersPaymentDTO.getOrderNumber())
+                .build();
+        webSocketServer.publish(webSocketMessage);
 
         return vo;
     }
@@ -177,6 +216,10 @@ public class OrderServiceImpl implements OrderService {
 
         // 根据订单号查询订单
         Orders ordersDB = orderMapper.getByNumber(outTradeNo);
+        if (ordersDB == null) {
+            log.error("支付成功通知的订单不存在：{}", outTradeNo);
+            return;
+        }
 
         // 根据订单id更新订单的状态、支付方式、支付状态、结账时间
         Orders orders = Orders.builder()
@@ -186,7 +229,12 @@ public class OrderServiceImpl implements OrderService {
                 .checkoutTime(LocalDateTime.now())
                 .build();
 
-        orderMapper.update(orders);
+        //支付回调可能重复通知，订单已不是待付款状态时忽略
+        if (orderStateMachine.transition(orders, Orders.PENDING_PAYMENT) == null){
+            log.info("订单已处理，忽略支付成功通知：{}", outTradeNo);
+            return;
+        }
+        orderTimeoutQueue.remove(ordersDB.getId());
     }
 
     /**
@@ -204,25 +252,28 @@ public class OrderServiceImpl implements OrderService {
         ordersPageQueryDTO.setStatus(status);
         //查询订单
         Page<Orders> page = orderMapper.pageQuery(ordersPageQueryDTO);
-        List<OrderVO> orderVOList = new ArrayList<>();
-        //查询订单细节
-        if(page != null && page.size() > 0 ){
-            for (Orders orders : page) {
-                Long ordersId = orders.getId();
-                List<OrderDetail> orderDetailList = orderDetailMapper.getByOrderId(ordersId);
-
-                OrderVO orderVO = new OrderVO();
-                BeanUtils.copyProperties(orders,orderVO);
-
-                orderVO.setOrderDetailList(orderDetailList);
-
-                orderVOList.add(orderVO);
-            }
-        }
+        //一次查询出当前页所有订单的明细
+        List<OrderVO> orderVOList = getOrderVOList(page);
         return new PageResult(page.getTotal(),orderVOList);
 
     }
 
+    /**
+     * 历史订单游标分页查询
+     * @param cursor 上一页返回的游标，查询第一页时为空
+     * @param pageSize
+     * @param status
+     * @return
+     */
+    public CursorPageResult cursorQuery4User(String cursor, Integer pageSize, Integer status) {
+        OrdersPageQueryDTO ordersPageQueryDTO = new OrdersPageQueryDTO();
+        ordersPageQueryDTO.setUserId(BaseContext.getCurrentId());
+        ordersPageQueryDTO.setStatus(status);
+        ordersPageQueryDTO.setPageSize(pageSize == null ? 0 : pageSize);
+        ordersPageQueryDTO.setCursor(cursor);
+        return cursorQuery(ordersPageQueryDTO);
+    }
+
     /**
      * 查询历史订单详情
      * @param id
@@ -248,23 +299,8 @@ public class OrderServiceImpl implements OrderService {
      * @throws Exception
      */
     public void userCancelById(Long id) throws Exception{
-        //校验订单合法情况
-
-        //校验订单是否存在
-        Orders orderDB = orderMapper.getByOrderId(id);
-
-        //校验订单是否存在
-        if (orderDB == null){
-            throw new OrderBusinessException(MessageConstant.ORDER_NOT_FOUND);
-        }
-
-        //订单状态 1待付款 2待接单 3已接单 4派送中 5已完成 6已取消
-        if (orderDB.getStatus() > 2){
-            throw new OrderBusinessException(MessageConstant.ORDER_STATUS_ERROR);
-        }
-
         Orders orders = new Orders();
-        orders.setId(orderDB.getId());
+        orders.setId(id);
 /*
         //订单处于接单状态下取消，需要进行退款
         if(orderDB.getStatus().equals(Orders.TO_BE_CONFIRMED)){
@@ -288,7 +324,9 @@ public class OrderServiceImpl implements OrderService {
         orders.setStatus(Orders.CANCELLED);
         orders.setCancelReason("用户取消");
         orders.setCancelTime(LocalDateTime.now());
-        orderMapper.update(orders);
+        //订单状态 1待付款 2待接单 3已接单 4派送中 5已完成 6已取消，只有待付款和待接单的订单可以由用户取消
+        transitionOrFail(orders, Orders.PENDING_PAYMENT, Orders.TO_BE_CONFIRMED);
+        orderTimeoutQueue.remove(id);
     }
 
     /**
@@ -313,7 +351,7 @@ public class OrderServiceImpl implements OrderService {
         }).collect(Collectors.toList());
 
         //将购物车对象批量插入购物车
-        shoppingCartMapper.insertBatch(shoppingCartList);
+        cartStore.insertBatch(shoppingCartList);
     }
 
     /**
@@ -322,9 +360,83 @@ public class OrderServiceImpl implements OrderService {
      * @return
      */
     public PageResult conditionQuery(OrdersPageQueryDTO ordersPageQueryDTO) {
+        orderSearchIndex.normalize(ordersPageQueryDTO);
         PageHelper.startPage(ordersPageQueryDTO.getPage(),ordersPageQueryDTO.getPageSize());
         Page<Orders> page = orderMapper.pageQuery(ordersPageQueryDTO);
-        return new PageResult(page.getTotal(),page.getResult());
+        //管理端需要展示订单包含的菜品信息
+        List<OrderVO> orderVOList = getOrderVOList(page);
+        return new PageResult(page.getTotal(),orderVOList);
+    }
+
+    /**
+     * 管理端订单条件游标分页查询
+     * @param ordersPageQueryDTO
+     * @return
+     */
+    public CursorPageResult conditionCursorQuery(OrdersPageQueryDTO ordersPageQueryDTO) {
+        orderSearchIndex.normalize(ordersPageQueryDTO);
+        return cursorQuery(ordersPageQueryDTO);
+    }
+
+    /**
+     * 游标分页查询订单，多查一条用于判断是否还有下一页
+     * @param ordersPageQueryDTO
+     * @return
+     */
+    private CursorPageResult cursorQuery(OrdersPageQueryDTO ordersPageQueryDTO) {
+        int pageSize = ordersPageQueryDTO.getPageSize() > 0 ? ordersPageQueryDTO.getPageSize() : DEFAULT_CURSOR_PAGE_SIZE;
+        OrderCursor cursor = OrderCursor.decode(ordersPageQueryDTO.getCursor());
+        List<Orders> ordersList = orderMapper.cursorQuery(ordersPageQueryDTO,
+                cursor == null ? null : cursor.getOrderTime(),
+                cursor == null ? null : cursor.getId(),
+                pageSize + 1);
+
+        boolean hasNext = ordersList.size() > pageSize;
+        if (hasNext) {
+            ordersList = ordersList.subList(0, pageSize);
+        }
+        String nextCursor = hasNext ? OrderCursor.of(ordersList.get(ordersList.size() - 1)).encode() : null;
+        return new CursorPageResult(getOrderVOList(ordersList), nextCursor, hasNext);
+    }
+
+    /**
+     * 将订单列表转换为包含订单明细和菜品信息的OrderVO列表，订单明细只查询一次
+     * @param ordersList
+     * @return
+     */
+    private List<OrderVO> getOrderVOList(List<Orders> ordersList) {
+        List<OrderVO> orderVOList = new ArrayList<>();
+        if (ordersList == null || ordersList.isEmpty()) {
+            return orderVOList;
+        }
+
+        //根据订单id批量查询订单明细，并按订单id分组
+        List<Long> orderIds = ordersList.stream().map(Orders::getId).collect(Collectors.toList());
+        Map<Long, List<OrderDetail>> orderDetailMap = orderDetailMapper.getByOrderIds(orderIds).stream()
+                .collect(Collectors.groupingBy(OrderDetail::getOrderId));
+
+        for (Orders orders : ordersList) {
+            List<OrderDetail> orderDetailList = orderDetailMap.getOrDefault(orders.getId(), new ArrayList<>());
+
+            OrderVO orderVO = new OrderVO();
+            BeanUtils.copyProperties(orders,orderVO);
+            orderVO.setOrderDetailList(orderDetailList);
+            orderVO.setOrderDishes(getOrderDishesStr(orderDetailList));
+
+            orderVOList.add(orderVO);
+        }
+        return orderVOList;
+    }
+
+    /**
+     * 拼接订单菜品信息，格式：宫保鸡丁*3;
+     * @param orderDetailList
+     * @return
+     */
+    private String getOrderDishesStr(List<OrderDetail> orderDetailList) {
+        return orderDetailList.stream()
+                .map(orderDetail -> orderDetail.getName() + "*" + orderDetail.getNumber() + ";")
+                .collect(Collectors.joining(""));
     }
 
     /**
@@ -332,9 +444,11 @@ public class OrderServiceImpl implements OrderService {
      * @return
      */
     public OrderStatisticsVO statistics() {
-        Integer toBeConfirmed = orderMapper.countStatus(Orders.TO_BE_CONFIRMED);
-        Integer confirmed = orderMapper.countStatus(Orders.CONFIRMED);
-        Integer deliveryInProgress = orderMapper.countStatus(Orders.DELIVERY_IN_PROGRESS);
+        //读取Redis中维护的状态计数，不再查询订单表
+        Map<Integer, Integer> counts = orderStatusCounter.getTotal();
+        Integer toBeConfirmed = counts.get(Orders.TO_BE_CONFIRMED);
+        Integer confirmed = counts.get(Orders.CONFIRMED);
+        Integer deliveryInProgress = counts.get(Orders.DELIVERY_IN_PROGRESS);
 
         // 将查询出的数据封装到OrderStatisticsVO中响应
         OrderStatisticsVO orderStatisticsVO = new OrderStatisticsVO();
@@ -351,11 +465,12 @@ public class OrderServiceImpl implements OrderService {
      * @param ordersConfirmDTO
      */
     public void confirm(OrdersConfirmDTO ordersConfirmDTO) {
+        //只有待接单的订单可以接单
         Orders orders = Orders.builder()
                 .id(ordersConfirmDTO.getId())
                 .status(Orders.CONFIRMED)
                 .build();
-        orderMapper.update(orders);
+        transitionOrFail(orders, Orders.TO_BE_CONFIRMED);
     }
 
 
@@ -365,14 +480,6 @@ public class OrderServiceImpl implements OrderService {
      * @throws Exception
      */
     public void rejection(OrdersRejectionDTO ordersRejectionDTO) throws Exception{
-        //根据id查询订单
-        Orders ordersDB = orderMapper.getByOrderId(ordersRejectionDTO.getId());
-
-        //订单只有存在且状态为2(待接单) 才可以拒单
-        if (ordersDB == null || !ordersDB.getStatus().equals(Orders.TO_BE_CONFIRMED)){
-            throw new OrderBusinessException(MessageConstant.ORDER_STATUS_ERROR);
-        }
-
 /*        //支付状态
         Integer payStatus = ordersDB.getPayStatus();
         if (payStatus == Orders.PAID){
@@ -386,14 +493,14 @@ public class OrderServiceImpl implements OrderService {
             log.info("申请退款：{}",refund);
         }*/
 
-        //拒单需要退款、根据订单id更新订单状态、拒单原因、拒单时间
+        //拒单需要退款、根据订单id更新订单状态、拒单原因、拒单时间，订单只有状态为2(待接单) 才可以拒单
         Orders orders = Orders.builder()
-                .id(ordersDB.getId())
+                .id(ordersRejectionDTO.getId())
                 .status(Orders.CANCELLED)
                 .rejectionReason(ordersRejectionDTO.getRejectionReason())
                 .cancelTime(LocalDateTime.now())
                 .build();
-        orderMapper.update(orders);
+        transitionOrFail(orders, Orders.TO_BE_CONFIRMED);
     }
 
     /**
@@ -401,10 +508,6 @@ public class OrderServiceImpl implements OrderService {
      * @param ordersCancelDTO
      */
     public void cancel(OrdersCancelDTO ordersCancelDTO) {
-        //根据id查询订单
-        Orders ordersDB = orderMapper.getByOrderId(ordersCancelDTO.getId());
-
-
 /*        //支付状态
         Integer payStatus = ordersDB.getPayStatus();
         if (payStatus == Orders.PAID){
@@ -418,14 +521,16 @@ public class OrderServiceImpl implements OrderService {
             log.info("申请退款：{}",refund);
         }*/
 
-        //拒单需要退款、根据订单id更新订单状态、拒单原因、拒单时间
+        //根据订单id更新订单状态、取消原因、取消时间，已完成和已取消的订单不能再取消
         Orders orders = Orders.builder()
-                .id(ordersDB.getId())
+                .id(ordersCancelDTO.getId())
                 .status(Orders.CANCELLED)
-                .rejectionReason(ordersCancelDTO.getCancelReason())
+                .cancelReason(ordersCancelDTO.getCancelReason())
                 .cancelTime(LocalDateTime.now())
                 .build();
-        orderMapper.update(orders);
+        transitionOrFail(orders, Orders.TO_BE_CONFIRMED, Orders.CONFIRMED,
+                Orders.DELIVERY_IN_PROGRESS, Orders.PENDING_PAYMENT);
+        orderTimeoutQueue.remove(ordersCancelDTO.getId());
     }
 
     /**
@@ -433,19 +538,12 @@ public class OrderServiceImpl implements OrderService {
      * @param id
      */
     public void delivery(Long id) {
-        // 根据id查询订单
-        Orders orderDB = orderMapper.getByOrderId(id);
-        // 校验订单是否存在，并且状态为3
-        if(orderDB == null || !orderDB.getStatus().equals(Orders.CONFIRMED)){
-            throw new OrderBusinessException(MessageConstant.ORDER_STATUS_ERROR);
-        }
-
-        // 更新订单状态,状态转为派送中
+        // 更新订单状态,状态为3的订单转为派送中
         Orders orders = Orders.builder()
-                .id(orderDB.getId())
+                .id(id)
                 .status(Orders.DELIVERY_IN_PROGRESS)
                 .build();
-        orderMapper.update(orders);
+        transitionOrFail(orders, Orders.CONFIRMED);
     }
 
     /**
@@ -453,21 +551,30 @@ public class OrderServiceImpl implements OrderService {
      * @param id
      */
     public void complete(Long id) {
-        // 根据id查询订单
-        Orders orderDB = orderMapper.getByOrderId(id);
-
-        // 校验订单是否存在，并且状态为4
-        if(orderDB == null || !orderDB.getStatus().equals(Orders.DELIVERY_IN_PROGRESS)){
-            throw new OrderBusinessException(MessageConstant.ORDER_STATUS_ERROR);
-        }
-
-        // 更新订单状态,状态转为完成
+        // 更新订单状态,状态为4的订单转为完成
         Orders orders = Orders.builder()
-                .id(orderDB.getId())
+                .id(id)
                 .status(Orders.COMPLETED)
                 .deliveryTime(LocalDateTime.now())
                 .build();
-        orderMapper.update(orders);
+        transitionOrFail(orders, Orders.DELIVERY_IN_PROGRESS);
+    }
+
+    /**
+     * 通过状态机流转订单，失败时区分订单不存在和状态不允许
+     * @param orders 订单id及流转后的状态和相关字段
+     * @param allowedFrom 允许流转的原状态
+     * @return 流转前的状态
+     */
+    private Integer transitionOrFail(Orders orders, Integer... allowedFrom) {
+        Integer fromStatus = orderStateMachine.transition(orders, allowedFrom);
+        if (fromStatus != null) {
+            return fromStatus;
+        }
+        if (orderMapper.getByOrderId(orders.getId()) == null) {
+            throw new OrderBusinessException(MessageConstant.ORDER_NOT_FOUND);
+        }
+        throw new OrderBusinessException(MessageConstant.ORDER_STATUS_ERROR);
     }
 
     /**
@@ -480,13 +587,64 @@ public class OrderServiceImpl implements OrderService {
             throw new OrderBusinessException(MessageConstant.ORDER_NOT_FOUND);
         }
 
-        //通过websocket向客户端推送消息 type orderId content
-        Map map = new HashMap();
-        map.put("type",2); // 1表示来单提醒 2表示客户催单
-        map.put("orderId",orderDB.getId());
-        map.put("content","订单号： " + orderDB.getNumber());
-        String json = JSON.toJSONString(map);
-        webSocketServer.sendToAllClient(json);
+        //通过websocket向订阅了催单提醒的客户端推送消息
+        WebSocketMessage webSocketMessage = WebSocketMessage.builder()
+                .messageType(WebSocketMessageType.ORDER_REMINDER)
+                .orderId(orderDB.getId())
+                .content("订单号： " + orderDB.getNumber())
+                .build();
+        webSocketServer.publish(webSocketMessage);
+    }
+
+    /**
+     * 批量接单
+     * @param ids
+     * @return 实际接单的订单id
+     */
+    public List<Long> confirmBatch(List<Long> ids) {
+        Orders orders = Orders.builder()
+                .status(Orders.CONFIRMED)
+                .build();
+        return orderStateMachine.transitionBatch(ids, Orders.TO_BE_CONFIRMED, orders);
+    }
+
+    /**
+     * 批量派送订单
+     * @param ids
+     * @return 实际派送的订单id
+     */
+    public List<Long> deliveryBatch(List<Long> ids) {
+        Orders orders = Orders.builder()
+                .status(Orders.DELIVERY_IN_PROGRESS)
+                .build();
+        return orderStateMachine.transitionBatch(ids, Orders.CONFIRMED, orders);
     }
-}
 
+    /**
+     * 批量完成订单
+     * @param ids
+     * @return 实际完成的订单id
+     */
+    public List<Long> completeBatch(List<Long> ids) {
+        //与单个完成订单一致，记录送达时间
+        Orders orders = Orders.builder()
+                .status(Orders.COMPLETED)
+                .deliveryTime(LocalDateTime.now())
+                .build();
+        return orderStateMachine.transitionBatch(ids, Orders.DELIVERY_IN_PROGRESS, orders);
+    }
+
+    /**
+     * 批量取消支付超时的订单
+     * @param ids
+     * @return 实际取消的订单id
+     */
+    public List<Long> cancelTimeoutOrders(List<Long> ids) {
+        Orders orders = Orders.builder()
+                .status(Orders.CANCELLED)
+                .cancelReason("订单超时,自动取消")
+                .cancelTime(LocalDateTime.now())
+                .build();
+        return orderStateMachine.transitionBatch(ids, Orders.PENDING_PAYMENT, orders);
+    }
+}
@@ -1,13 +1,24 @@
 package com.sky.service.impl;
 
+import com.sky.constant.MessageConstant;
+import com.sky.dto.DailyStatisticsDTO;
 import com.sky.dto.GoodsSalesDTO;
 import com.sky.entity.Orders;
-import com.sky.mapper.OrderMapper;
+import com.sky.exception.ReportBusinessException;
 import com.sky.mapper.UserMapper;
+import com.sky.service.BusinessStatsService;
 import com.sky.service.ReportService;
-import com.sky.service.WorkspaceService;
+import com.sky.service.SalesRankService;
 import com.sky.vo.*;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang.StringUtils;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFRow;
 import org.apache.poi.xssf.usermodel.XSSFSheet;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
@@ -25,14 +36,21 @@ import java.util.*;
 import java.util.stream.Collectors;
 
 @Service
+@Slf4j
 public class ReportServiceImpl implements ReportService {
 
-    @Autowired
-    private OrderMapper orderMapper;
+    //模板中明细数据的起始行和最后一列
+    private static final int DETAIL_ROW_START = 7;
+    private static final int DETAIL_LAST_CELL = 6;
+    //流式写入时内存中保留的行数
+    private static final int ROW_ACCESS_WINDOW_SIZE = 100;
+
     @Autowired
     private UserMapper userMapper;
     @Autowired
-    private WorkspaceService workspaceService;
+    private BusinessStatsService businessStatsService;
+    @Autowired
+    private SalesRankService salesRankService;
 
     /**
      * 营业额统计
@@ -42,28 +60,14 @@ public class ReportServiceImpl implements ReportService {
      */
     public TurnoverReportVO getTurnoverStatistics(LocalDate begin, LocalDate end) {
         //当前集合用于存放begin到end范围内每天的日期
-        List<LocalDate> dateList = new ArrayList();
-        dateList.add(begin);
-        while (!begin.equals(end)){
-            //日期计算，计算当前日期后一天对应的日期
-            begin = begin.plusDays(1);
-            dateList.add(begin);
-        }
+        List<LocalDate> dateList = getDateList(begin, end);
+        //一次分组查询出区间内每天的营业数据
+        Map<LocalDate, DailyStatisticsDTO> statisticsMap = getOrderStatisticsByDay(begin, end);
 
         List<Double> turnoverList = new ArrayList<>();
         for (LocalDate date : dateList) {
-            //查询当天范围内状态为”已完成“的订单金额总数，即营业额
-            LocalDateTime beginTime = LocalDateTime.of(date, LocalTime.MIN);
-            LocalDateTime endTime = LocalDateTime.of(date, LocalTime.MAX);
-
-            Map map = new HashMap();
-            map.put("status", Orders.COMPLETED);
-            map.put("beginTime",beginTime);
-            map.put("endTime",endTime);
-
-            Double turnover = orderMapper.sumByMap(map);
-            if (turnover == null)turnover = 0.0;
-            turnoverList.add(turnover);
+            //没有订单的日期营业额记为0
+            turnoverList.add(getOrEmpty(statisticsMap, date).getTurnover());
         }
         //封装返回结果
         return TurnoverReportVO.builder()
@@ -80,30 +84,25 @@ public class ReportServiceImpl implements ReportService {
      */
     public UserReportVO getUserStatistics(LocalDate begin, LocalDate end) {
         //当前集合用于存放begin到end范围内每天的日期
-        List<LocalDate> dateList = new ArrayList<>();
-        dateList.add(begin);
-        while (!begin.equals(end)){
-            begin = begin.plusDays(1);
-            dateList.add(begin);
-        }
+        List<LocalDate> dateList = getDateList(begin, end);
+
+        //查询begin之前的用户总量，作为累加的起点
+        Map map = new HashMap();
+        map.put("endTime", LocalDateTime.of(begin, LocalTime.MIN));
+        Integer totalUser = userMapper.countUser(map);
+
+        //一次分组查询出区间内每天的新增用户数
+        Map<LocalDate, DailyStatisticsDTO> newUserMap = getNewUserByDay(begin, end);
 
         List<Integer> newUserList  = new ArrayList<>(); //新用户集合
         List<Integer> totalUserList = new ArrayList<>(); // 总用户集合
 
         for (LocalDate date : dateList) {
-            LocalDateTime beginTime = LocalDateTime.of(date, LocalTime.MIN);
-            LocalDateTime endTime = LocalDateTime.of(date, LocalTime.MAX);
-
-            Map map = new HashMap();
-            map.put("endTime",endTime);
-
-            Integer totalUser = userMapper.countUser(map);
-            totalUserList.add(totalUser);
-
-            map.put("beginTime", beginTime);
-            Integer newUser = userMapper.countUser(map);
+            Integer newUser = getOrEmpty(newUserMap, date).getNewUsers();
+            //当天的用户总量 = 前一天的用户总量 + 当天新增用户数
+            totalUser += newUser;
             newUserList.add(newUser);
-
+            totalUserList.add(totalUser);
         }
         return UserReportVO.builder()
                 .dateList(StringUtils.join(dateList,","))
@@ -121,32 +120,29 @@ public class ReportServiceImpl implements ReportService {
      */
     public OrderReportVO getOrderStatistics(LocalDate begin, LocalDate end) {
         //当前集合用于存放begin到end范围内每天的日期
-        List<LocalDate> dateList = new ArrayList<>();
-        dateList.add(begin);
-        while (!begin.equals(end)){
-            begin = begin.plusDays(1);
-            dateList.add(begin);
-        }
+        List<LocalDate> dateList = getDateList(begin, end);
+        //一次分组查询出区间内每天的订单数据
+        Map<LocalDate, DailyStatisticsDTO> statisticsMap = getOrderStatisticsByDay(begin, end);
+
         //当前时间区间内的订单总数
         List<Integer> orderCountList = new ArrayList<>();
         //当前时间区间内的有效（已完成）订单总数
         List<Integer> validOrderCountList = new ArrayList<>();
+        //计算时间区间内订单总数
+        Integer totalOrderCount = 0;
+        //计算时间区间内有效订单总数
+        Integer validOrderCount = 0;
 
         for (LocalDate date : dateList) {
-            LocalDateTime beginTime = LocalDateTime.of(date, LocalTime.MIN);
-            LocalDateTime endTime = LocalDateTime.of(date, LocalTime.MAX);
-
+            DailyStatisticsDTO daily = getOrEmpty(statisticsMap, date);
             // 当天的订单数量
-            Integer orderCount = getOrderCount(beginTime,endTime,null);
-            orderCountList.add(orderCount);
+            orderCountList.add(daily.getOrderCount());
             // 当天的有效订单数量
-            Integer validCount = getOrderCount(beginTime,endTime,Orders.COMPLETED);
-            validOrderCountList.add(validCount);
+            validOrderCountList.add(daily.getValidOrderCount());
+
+            totalOrderCount += daily.getOrderCount();
+            validOrderCount += daily.getValidOrderCount();
         }
-        //计算时间区间内订单总数
-        Integer totalOrderCount = orderCountList.stream().reduce(Integer::sum).get();
-        //计算时间区间内有效订单总数
-        Integer validOrderCount = validOrderCountList.stream().reduce(Integer::sum).get();
 
         Double orderCompletionRate = 0.0 ;
         // 计算订单完成率
@@ -164,13 +160,55 @@ public class ReportServiceImpl implements ReportService {
                 .build();
     }
 
-    private Integer getOrderCount(LocalDateTime beginTime, LocalDateTime endTime, Integer status){
+    /**
+     * 获取begin到end范围内每天的日期
+     * @param begin
+     * @param end
+     * @return
+     */
+    private List<LocalDate> getDateList(LocalDate begin, LocalDate end) {
+        List<LocalDate> dateList = new ArrayList<>();
+        for (LocalDate date = begin; !date.isAfter(end); date = date.plusDays(1)) {
+            dateList.add(date);
+        }
+        return dateList;
+    }
+
+    /**
+     * 按天查询区间内的订单数量、有效订单数量和营业额，以日期为key返回
+     * @param begin
+     * @param end
+     * @return
+     */
+    private Map<LocalDate, DailyStatisticsDTO> getOrderStatisticsByDay(LocalDate begin, LocalDate end) {
+        return businessStatsService.getDailyStatistics(begin, end).stream()
+                .collect(Collectors.toMap(DailyStatisticsDTO::getStatDate, d -> d));
+    }
+
+    /**
+     * 按天分组查询区间内的新增用户数，以日期为key返回
+     * @param begin
+     * @param end
+     * @return
+     */
+    private Map<LocalDate, DailyStatisticsDTO> getNewUserByDay(LocalDate begin, LocalDate end) {
         Map map = new HashMap();
-        map.put("beginTime",beginTime);
-        map.put("endTime",endTime);
-        map.put("status",status);
+        map.put("beginTime", LocalDateTime.of(begin, LocalTime.MIN));
+        map.put("endTime", LocalDateTime.of(end, LocalTime.MAX));
+
+        return userMapper.countNewUserByDay(map).stream()
+                .collect(Collectors.toMap(DailyStatisticsDTO::getStatDate, d -> d));
+    }
 
-        return orderMapper.countByMap(map);
+    /**
+     * 获取指定日期的统计数据，没有数据的日期补齐为0
+     * @param statisticsMap
+     * @param date
+     * @return
+     */
+    private DailyStatisticsDTO getOrEmpty(Map<LocalDate, DailyStatisticsDTO> statisticsMap, LocalDate date) {
+        DailyStatisticsDTO daily = statisticsMap.get(date);
+        return daily == null ? DailyStatisticsDTO.empty(date) : daily;
     }
 
 
@@ -182,10 +220,8 @@ public class ReportServiceImpl implements ReportService {
      */
     public SalesTop10ReportVO getTop10Sales(LocalDate begin, LocalDate end) {
 
-        LocalDateTime beginTime = LocalDateTime.of(begin, LocalTime.MIN);
-        LocalDateTime endTime = LocalDateTime.of(end, LocalTime.MAX);
-
-        List<GoodsSalesDTO> salesTop10 = orderMapper.getTop10Sales(beginTime,endTime);
+        //读取Redis中按天累加的销量，返回的商品数由sky.sales-rank.top-n配置
+        List<GoodsSalesDTO> salesTop10 = salesRankService.getTopSales(begin,end);
 
         List<String> names = salesTop10.stream().map(GoodsSalesDTO::getName).collect(Collectors.toList());
         List<Integer> numbers = salesTop10.stream().map((GoodsSalesDTO::getNumber)).collect(Collectors.toList());
@@ -201,23 +237,44 @@ public class ReportServiceImpl implements ReportService {
     }
 
     /**
-     * 导出近30天的运营数据报表
+     * 导出指定时间范围内的运营数据报表
+     * @param begin
+     * @param end
      * @param httpServletResponse
      */
-    public void exportBusinessData(HttpServletResponse httpServletResponse) {
-        LocalDate begin = LocalDate.now().minusDays(30);
-        LocalDate end = LocalDate.now().minusDays(1);
+    public void exportBusinessData(LocalDate begin, LocalDate end, HttpServletResponse httpServletResponse) {
+        List<LocalDate> dateList = getDateList(begin, end);
+        //明细数据每天一行，不能超过Excel的最大行数
+        if (dateList.isEmpty() || DETAIL_ROW_START + dateList.size() > SpreadsheetVersion.EXCEL2007.getMaxRows()) {
+            throw new ReportBusinessException(MessageConstant.REPORT_DATE_RANGE_ERROR);
+        }
+
+        //一次查询出区间内每天的订单数据和新增用户数据
+        Map<LocalDate, DailyStatisticsDTO> statisticsMap = getOrderStatisticsByDay(begin, end);
+        Map<LocalDate, DailyStatisticsDTO> newUserMap = getNewUserByDay(begin, end);
 
-        //查询概览运营数据，提供给Excel模板文件
-        BusinessDataVO businessDataVO = workspaceService.getBusinessData(LocalDateTime.of(begin, LocalTime.MIN), LocalDateTime.of(end, LocalTime.MAX));
+        //汇总概览数据
+        int orderCount = 0;
+        int validOrderCount = 0;
+        double turnover = 0.0;
+        int newUsers = 0;
+        for (LocalDate date : dateList) {
+            DailyStatisticsDTO daily = getOrEmpty(statisticsMap, date);
+            orderCount += daily.getOrderCount();
+            validOrderCount += daily.getValidOrderCount();
+            turnover += daily.getTurnover();
+            newUsers += getOrEmpty(newUserMap, date).getNewUsers();
+        }
+        BusinessDataVO businessDataVO = toBusinessData(orderCount, validOrderCount, turnover, newUsers);
 
         InputStream inputStream = this.getClass().getClassLoader().getResourceAsStream("template/template.xlsx");
 
+        SXSSFWorkbook excel = null;
         try {
             //基于提供好的模板文件创建一个新的Excel表对象
-            XSSFWorkbook excel = new XSSFWorkbook(inputStream);
+            XSSFWorkbook template = new XSSFWorkbook(inputStream);
             //获取excel表中的一个sheet对象
-            XSSFSheet sheet = excel.getSheet("Sheet1");
+            XSSFSheet sheet = template.getSheet("Sheet1");
             //填入时间范围
             sheet.getRow(1).getCell(1).setCellValue(begin + "至" + end);
             //填入概览数据
@@ -227,103 +284,85 @@ public class ReportServiceImpl implements ReportService {
             sheet.getRow(4).getCell(2).setCellValue(businessDataVO.getValidOrderCount());
             sheet.getRow(4).getCell(4).setCellValue(businessDataVO.getUnitPrice());
 
+            //记录模板中明细行每一列的样式，然后删除模板中的明细行，由流式工作簿逐行追加写入
+            XSSFRow styleRow = sheet.getRow(DETAIL_ROW_START);
+            CellStyle[] styles = new CellStyle[DETAIL_LAST_CELL + 1];
+            for (int c = 1; c <= DETAIL_LAST_CELL; c++) {
+                styles[c] = styleRow.getCell(c).getCellStyle();
+            }
+            for (int r = sheet.getLastRowNum(); r >= DETAIL_ROW_START; r--) {
+                XSSFRow row = sheet.getRow(r);
+                if (row != null) {
+                    sheet.removeRow(row);
+                }
+            }
+
+            //流式工作簿只在内存中保留最近的若干行，其余行写入临时文件
+            excel = new SXSSFWorkbook(template, ROW_ACCESS_WINDOW_SIZE);
+            Sheet detailSheet = excel.getSheet("Sheet1");
+
             //填入明细数据
-            for (int i = 0; i < 30; i++) {
-                LocalDate date = begin.plusDays(i);
-                //获取明细数据
-                LocalDateTime beginTime = LocalDateTime.of(date, LocalTime.MIN);
-                LocalDateTime endTime = LocalDateTime.of(date, LocalTime.MAX);
-                BusinessDataVO businessData = workspaceService.getBusinessData(beginTime,endTime);
-//                businessData = workspaceService.getBusinessData(LocalDateTime.of(date,LocalTime.MIN), LocalDateTime.of(date, LocalTime.MAX));
-                sheet.getRow(7+i).getCell(1).setCellValue(date.toString());
-                sheet.getRow(7+i).getCell(2).setCellValue(businessData.getTurnover());
-                sheet.getRow(7+i).getCell(3).setCellValue(businessData.getValidOrderCount());
-                sheet.getRow(7+i).getCell(4).setCellValue(businessData.getOrderCompletionRate());
-                sheet.getRow(7+i).getCell(5).setCellValue(businessData.getUnitPrice());
-                sheet.getRow(7+i).getCell(6).setCellValue(businessData.getNewUsers());
+            int rowNum = DETAIL_ROW_START;
+            for (LocalDate date : dateList) {
+                DailyStatisticsDTO daily = getOrEmpty(statisticsMap, date);
+                BusinessDataVO businessData = toBusinessData(daily.getOrderCount(), daily.getValidOrderCount(),
+                        daily.getTurnover(), getOrEmpty(newUserMap, date).getNewUsers());
+
+                Row row = detailSheet.createRow(rowNum++);
+                createCell(row, 1, styles).setCellValue(date.toString());
+                createCell(row, 2, styles).setCellValue(businessData.getTurnover());
+                createCell(row, 3, styles).setCellValue(businessData.getValidOrderCount());
+                createCell(row, 4, styles).setCellValue(businessData.getOrderCompletionRate());
+                createCell(row, 5, styles).setCellValue(businessData.getUnitPrice());
+                createCell(row, 6, styles).setCellValue(businessData.getNewUsers());
             }
 
             //通过输出流将文件下载到客户端浏览器中
             ServletOutputStream outputStream = httpServletResponse.getOutputStream();
             excel.write(outputStream);
-
-            //关闭资源
             outputStream.flush();
-            outputStream.close();
-            excel.close();
         } catch (IOException e) {
-            e.printStackTrace();
+            log.error("导出运营数据报表失败：{}至{}", begin, end, e);
+            throw new ReportBusinessException(MessageConstant.REPORT_EXPORT_FAILED);
+        } finally {
+            //关闭资源，删除流式写入产生的临时文件
+            if (excel != null) {
+                excel.dispose();
+            }
+            IOUtils.closeQuietly(excel);
+            IOUtils.closeQuietly(inputStream);
         }
     }
 
+    /**
+     * 根据订单数据和新增用户数计算营业数据
+     * @param orderCount
+     * @param validOrderCount
+     * @param turnover
+     * @param newUsers
+     * @return
+     */
+    private BusinessDataVO toBusinessData(Integer orderCount, Integer validOrderCount, Double turnover, Integer newUsers) {
+        Double unitPrice = 0.0;
+        Double orderCompletionRate = 0.0;
+        if (orderCount != 0 && validOrderCount != 0) {
+            //订单完成率
+            orderCompletionRate = validOrderCount.doubleValue() / orderCount;
+            //平均客单价
+            unitPrice = turnover / validOrderCount;
+        }
+        return BusinessDataVO.builder()
+                .turnover(turnover)
+                .validOrderCount(validOrderCount)
+                .orderCompletionRate(orderCompletionRate)
+                .unitPrice(unitPrice)
+                .newUsers(newUsers)
+                .build();
+    }
 
-
-
-
-//    /**导出近30天的运营数据报表
-//     * @param httpServletResponse
-//     **/
-//    public void exportBusinessData(HttpServletResponse httpServletResponse) {
-//        LocalDate begin = LocalDate.now().minusDays(30);
-//        LocalDate end = LocalDate.now().minusDays(1);
-//        //查询概览运营数据，提供给Excel模板文件
-//        BusinessDataVO businessData = workspaceService.getBusinessData(LocalDateTime.of(begin,LocalTime.MIN), LocalDateTime.of(end, LocalTime.MAX));
-//        InputStream inputStream = this.getClass().getClassLoader().getResourceAsStream("template/template.xlsx");
-//        try {
-//            //基于提供好的模板文件创建一个新的Excel表格对象
-//            XSSFWorkbook excel = new XSSFWorkbook(inputStream);
-//            //获得Excel文件中的一个Sheet页
-//            XSSFSheet sheet = excel.getSheet("Sheet1");
-//
-//            sheet.getRow(1).getCell(1).setCellValue(begin + "至" + end);
-//            //获得第4行
-//            XSSFRow row = sheet.getRow(3);
-//            //获取单元格
-//            row.getCell(2).setCellValue(businessData.getTurnover());
-//            row.getCell(4).setCellValue(businessData.getOrderCompletionRate());
-//            row.getCell(6).setCellValue(businessData.getNewUsers());
-//            row = sheet.getRow(4);
-//            row.getCell(2).setCellValue(businessData.getValidOrderCount());
-//            row.getCell(4).setCellValue(businessData.getUnitPrice());
-//            for (int i = 0; i < 30; i++) {
-//                LocalDate date = begin.plusDays(i);
-//                //准备明细数据
-//                businessData = workspaceService.getBusinessData(LocalDateTime.of(date,LocalTime.MIN), LocalDateTime.of(date, LocalTime.MAX));
-//                row = sheet.getRow(7 + i);
-//                row.getCell(1).setCellValue(date.toString());
-//                row.getCell(2).setCellValue(businessData.getTurnover());
-//                row.getCell(3).setCellValue(businessData.getValidOrderCount());
-//                row.getCell(4).setCellValue(businessData.getOrderCompletionRate());
-//                row.getCell(5).setCellValue(businessData.getUnitPrice());
-//                row.getCell(6).setCellValue(businessData.getNewUsers());
-//            }
-//            //通过输出流将文件下载到客户端浏览器中
-//            ServletOutputStream out = httpServletResponse.getOutputStream();
-//            excel.write(out);
-//            //关闭资源
-//            out.flush();
-//            out.close();
-//            excel.close();
-//
-//        }catch (IOException e){
-//            e.printStackTrace();
-//        }
-//    }
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
+    private Cell createCell(Row row, int column, CellStyle[] styles) {
+        Cell cell = row.createCell(column);
+        cell.setCellStyle(styles[column]);
+        return cell;
+    }
 }
@@ -0,0 +1,318 @@
+package com.sky.service.impl;
+
+import com.sky.dto.GoodsSalesDTO;
+import com.sky.dto.ItemSalesDTO;
+import com.sky.entity.Orders;
+import com.sky.mapper.OrderDetailMapper;
+import com.sky.mapper.OrderMapper;
+import com.sky.order.OrderTransitionListener;
+import com.sky.properties.SalesRankProperties;
+import com.sky.service.SalesRankService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * 商品销量排行
+ * 每天已完成订单的商品销量保存在一个有序集合中，订单完成后增量累加；
+ * 查询时合并区间内每天的有序集合取前N名，不再关联查询订单明细。
+ * 每天还记录已计入销量的订单id，增量累加按订单去重，避免与重新生成的数据重复计算；
+ * 当天数据不存在时增量先记入待处理集合，重新生成时一并处理，避免重新生成期间完成的订单被遗漏
+ */
+@Service
+@Slf4j
+public class SalesRankServiceImpl implements SalesRankService, OrderTransitionListener {
+
+    //每天的销量，例如：sky:sales:2024-01-01，成员为商品标识，分数为销量
+    private static final String DAILY_KEY_PREFIX = "sky:sales:";
+    //每天已计入销量的订单id
+    private static final String ORDERS_KEY_PREFIX = "sky:sales:orders:";
+    //当天销量数据不存在时完成的订单id，等待重新生成时处理
+    private static final String PENDING_KEY_PREFIX = "sky:sales:pending:";
+    //商品标识 -> 商品名称
+    private static final String NAME_KEY = "sky:sales:names";
+    //合并结果的临时key前缀
+    private static final String UNION_KEY_PREFIX = "sky:sales:union:";
+    //占位成员，表示当天的数据已经生成，没有销量的日期也不会重复统计
+    private static final String PLACEHOLDER = "_";
+
+    //KEYS: 当天销量, 已计入的订单, 待处理的订单, 商品名称  ARGV: 过期秒数, 订单id, 商品标识1, 销量1, 名称1 ...
+    //当天数据不存在时记入待处理集合；订单已计入过时跳过
+    private static final DefaultRedisScript<Long> INCREASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('exists', KEYS[1]) == 0 then " +
+            "  redis.call('sadd', KEYS[3], ARGV[2]) " +
+            "  redis.call('expire', KEYS[3], ARGV[1]) " +
+            "  return 0 " +
+            "end " +
+            "if redis.call('sadd', KEYS[2], ARGV[2]) == 0 then return 0 end " +
+            "for i = 3, #ARGV, 3 do " +
+            "  redis.call('zincrby', KEYS[1], ARGV[i + 1], ARGV[i]) " +
+            "  redis.call('hset', KEYS[4], ARGV[i], ARGV[i + 2]) " +
+            "end " +
+            "return 1", Long.class);
+
+    //KEYS: 当天销量, 已计入的订单, 待处理的订单, 商品名称
+    //ARGV: 过期秒数, 订单数n, 订单id1..n, 商品标识1, 销量1, 名称1 ...
+    //用订单表中的数据覆盖当天的销量，返回原来已计入或待处理、但不在本次数据中的订单id，这些订单需要重新累加
+    private static final DefaultRedisScript<List> REBUILD_SCRIPT = new DefaultRedisScript<>(
+            "local previous = redis.call('smembers', KEYS[2]) " +
+            "local pending = redis.call('smembers', KEYS[3]) " +
+            "redis.call('del', KEYS[1], KEYS[2], KEYS[3]) " +
+            "redis.call('zadd', KEYS[1], 0, '" + PLACEHOLDER + "') " +
+            "local count = tonumber(ARGV[2]) " +
+            "local included = {} " +
+            "for i = 3, count + 2 do " +
+            "  included[ARGV[i]] = true " +
+            "  redis.call('sadd', KEYS[2], ARGV[i]) " +
+            "end " +
+            "for i = count + 3, #ARGV, 3 do " +
+            "  redis.call('zincrby', KEYS[1], ARGV[i + 1], ARGV[i]) " +
+            "  redis.call('hset', KEYS[4], ARGV[i], ARGV[i + 2]) " +
+            "end " +
+            "redis.call('expire', KEYS[1], ARGV[1]) " +
+            "if count > 0 then redis.call('expire', KEYS[2], ARGV[1]) end " +
+            "local missed = {} " +
+            "for _, id in ipairs(previous) do if not included[id] then table.insert(missed, id) end end " +
+            "for _, id in ipairs(pending) do if not included[id] then table.insert(missed, id) end end " +
+            "return missed", List.class);
+
+    //KEYS: 每天的销量...  返回不存在的key的下标（从0开始）
+    private static final DefaultRedisScript<List> MISSING_SCRIPT = new DefaultRedisScript<>(
+            "local missing = {} " +
+            "for i = 1, #KEYS do " +
+            "  if redis.call('exists', KEYS[i]) == 0 then table.insert(missing, i - 1) end " +
+            "end " +
+            "return missing", List.class);
+
+    //KEYS: 每天的销量..., 临时key  ARGV: 结束下标
+    private static final DefaultRedisScript<List> TOP_SCRIPT = new DefaultRedisScript<>(
+            "local dest = KEYS[#KEYS] " +
+            "redis.call('zunionstore', dest, #KEYS - 1, unpack(KEYS, 1, #KEYS - 1)) " +
+            "local result = redis.call('zrevrange', dest, 0, ARGV[1], 'withscores') " +
+            "redis.call('del', dest) " +
+            "return result", List.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private OrderDetailMapper orderDetailMapper;
+    @Autowired
+    private OrderMapper orderMapper;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private SalesRankProperties salesRankProperties;
+
+    /**
+     * 查询区间内销量最高的商品，Redis中缺少的日期先根据订单明细补齐
+     * @param begin
+     * @param end
+     * @return
+     */
+    public List<GoodsSalesDTO> getTopSales(LocalDate begin, LocalDate end) {
+        LocalDate today = LocalDate.now();
+        if (end.isAfter(today)) {
+            end = today;
+        }
+        if (begin.isAfter(end)) {
+            return new ArrayList<>();
+        }
+        rebuildMissing(begin, end);
+
+        List<String> keys = new ArrayList<>();
+        for (LocalDate date = begin; !date.isAfter(end); date = date.plusDays(1)) {
+            keys.add(getDailyKey(date));
+        }
+        int topN = salesRankProperties.getTopN();
+        keys.add(UNION_KEY_PREFIX + UUID.randomUUID());
+        //多取一个，去掉占位成员后仍有N个
+        List<String> result = stringRedisTemplate.execute(TOP_SCRIPT, keys, String.valueOf(topN));
+
+        List<String> items = new ArrayList<>();
+        List<Integer> numbers = new ArrayList<>();
+        for (int i = 0; result != null && i + 1 < result.size() && items.size() < topN; i += 2) {
+            if (PLACEHOLDER.equals(result.get(i))) {
+                continue;
+            }
+            items.add(result.get(i));
+            numbers.add((int) Double.parseDouble(result.get(i + 1)));
+        }
+        if (items.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<Object> names = stringRedisTemplate.opsForHash().multiGet(NAME_KEY, new ArrayList<>(items));
+        List<GoodsSalesDTO> salesList = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            Object name = names.get(i);
+            salesList.add(new GoodsSalesDTO(name == null ? items.get(i) : name.toString(), numbers.get(i)));
+        }
+        return salesList;
+    }
+
+    /**
+     * 根据订单明细重新生成区间内每天的销量数据，没有销量的日期也会生成
+     * @param begin
+     * @param end
+     */
+    public void rebuild(LocalDate begin, LocalDate end) {
+        List<LocalDate> dates = new ArrayList<>();
+        for (LocalDate date = begin; !date.isAfter(end); date = date.plusDays(1)) {
+            dates.add(date);
+        }
+        rebuild(dates);
+    }
+
+    /**
+     * 只为Redis中不存在的日期生成销量数据，一次检查所有日期，缺少的日期通过一次范围查询生成
+     * @param begin
+     * @param end
+     */
+    public void rebuildMissing(LocalDate begin, LocalDate end) {
+        List<LocalDate> dates = new ArrayList<>();
+        List<String> keys = new ArrayList<>();
+        for (LocalDate date = begin; !date.isAfter(end); date = date.plusDays(1)) {
+            dates.add(date);
+            keys.add(getDailyKey(date));
+        }
+        if (keys.isEmpty()) {
+            return;
+        }
+        List<Long> missing = stringRedisTemplate.execute(MISSING_SCRIPT, keys);
+        if (missing == null || missing.isEmpty()) {
+            return;
+        }
+        rebuild(missing.stream().map(index -> dates.get(index.intValue())).collect(Collectors.toList()));
+    }
+
+    /**
+     * 在同一事务中查询这些日期所在区间的销量和已完成的订单，保证两者是同一时刻的数据，
+     * 写入后重新累加原来已计入或待处理、但不在本次数据中的订单
+     * @param dates 按时间顺序排列
+     */
+    private void rebuild(List<LocalDate> dates) {
+        if (dates.isEmpty()) {
+            return;
+        }
+        LocalDate begin = dates.get(0);
+        LocalDate end = dates.get(dates.size() - 1);
+        log.info("重新生成商品销量数据：{}至{}，共{}天", begin, end, dates.size());
+        LocalDateTime beginTime = LocalDateTime.of(begin, LocalTime.MIN);
+        LocalDateTime endTime = LocalDateTime.of(end, LocalTime.MAX);
+        Map<LocalDate, List<ItemSalesDTO>> salesMap = new HashMap<>();
+        Map<LocalDate, List<Long>> orderIdMap = new HashMap<>();
+        transactionTemplate.executeWithoutResult(status -> {
+            salesMap.putAll(orderDetailMapper.getItemSales(null, beginTime, endTime, Orders.COMPLETED)
+                    .stream().collect(Collectors.groupingBy(ItemSalesDTO::getStatDate)));
+            orderIdMap.putAll(orderMapper.getByStatusAndOrderTime(Orders.COMPLETED, beginTime, endTime)
+                    .stream().collect(Collectors.groupingBy(orders -> orders.getOrderTime().toLocalDate(),
+                            Collectors.mapping(Orders::getId, Collectors.toList()))));
+        });
+
+        List<Long> missedOrderIds = new ArrayList<>();
+        for (LocalDate date : dates) {
+            List<Long> orderIds = orderIdMap.getOrDefault(date, Collections.emptyList());
+            List<String> args = new ArrayList<>();
+            args.add(String.valueOf(getTtlSeconds(date)));
+            args.add(String.valueOf(orderIds.size()));
+            orderIds.forEach(orderId -> args.add(orderId.toString()));
+            addItemArgs(args, salesMap.getOrDefault(date, Collections.emptyList()));
+            List<String> missed = stringRedisTemplate.execute(REBUILD_SCRIPT, getKeys(date), args.toArray());
+            if (missed != null) {
+                missed.forEach(orderId -> missedOrderIds.add(Long.valueOf(orderId)));
+            }
+        }
+        if (!missedOrderIds.isEmpty()) {
+            increase(missedOrderIds);
+        }
+    }
+
+    /**
+     * 订单完成的事务提交后累加这些订单的商品销量
+     * 事务回滚时不累加销量，提交后订单明细才能被重新生成的查询读到，两边按订单id去重
+     * @param orderIds 本次流转的订单id
+     * @param fromStatus 流转前的状态
+     * @param toStatus 流转后的状态
+     */
+    public void afterCommit(List<Long> orderIds, Integer fromStatus, Integer toStatus) {
+        if (!Orders.COMPLETED.equals(toStatus) || Orders.COMPLETED.equals(fromStatus)) {
+            return;
+        }
+        try {
+            increase(orderIds);
+        } catch (Exception e) {
+            //订单已经完成，累加失败不影响业务，由定时校正修正
+            log.error("累加商品销量失败：{}", orderIds, e);
+        }
+    }
+
+    /**
+     * 按订单累加销量，已计入过的订单会被跳过
+     * @param orderIds
+     */
+    private void increase(List<Long> orderIds) {
+        Map<Long, List<ItemSalesDTO>> salesMap = orderDetailMapper.getOrderItemSales(orderIds, Orders.COMPLETED)
+                .stream().collect(Collectors.groupingBy(ItemSalesDTO::getOrderId));
+        salesMap.forEach((orderId, salesList) -> {
+            LocalDate date = salesList.get(0).getStatDate();
+            List<String> args = new ArrayList<>();
+            args.add(String.valueOf(getTtlSeconds(date)));
+            args.add(orderId.toString());
+            addItemArgs(args, salesList);
+            stringRedisTemplate.execute(INCREASE_SCRIPT, getKeys(date), args.toArray());
+        });
+    }
+
+    private void addItemArgs(List<String> args, List<ItemSalesDTO> salesList) {
+        for (ItemSalesDTO sales : salesList) {
+            args.add(getItem(sales));
+            args.add(sales.getNumber().toString());
+            args.add(sales.getName());
+        }
+    }
+
+    /**
+     * 商品标识，菜品为d{菜品id}，套餐为s{套餐id}
+     * @param sales
+     * @return
+     */
+    private String getItem(ItemSalesDTO sales) {
+        if (sales.getDishId() != null) {
+            return "d" + sales.getDishId();
+        }
+        if (sales.getSetmealId() != null) {
+            return "s" + sales.getSetmealId();
+        }
+        return "n" + sales.getName();
+    }
+
+    private long getTtlSeconds(LocalDate date) {
+        //超过保留期的日期也至少保留一天，避免同一天内反复统计
+        LocalDateTime expireTime = LocalDateTime.of(date.plusDays(salesRankProperties.getRetainDays()), LocalTime.MIN);
+        return Math.max(Duration.between(LocalDateTime.now(), expireTime).getSeconds(), 24 * 60 * 60);
+    }
+
+    private List<String> getKeys(LocalDate date) {
+        return Arrays.asList(getDailyKey(date), ORDERS_KEY_PREFIX + date, PENDING_KEY_PREFIX + date, NAME_KEY);
+    }
+
+    private String getDailyKey(LocalDate date) {
+        return DAILY_KEY_PREFIX + date;
+    }
+}
@@ -0,0 +1,93 @@
+package com.sky.service.impl;
+
+import com.sky.constant.StatusConstant;
+import com.sky.enumeration.WebSocketMessageType;
+import com.sky.service.ShopService;
+import com.sky.webSocket.WebSocketMessage;
+import com.sky.webSocket.WebSocketServer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 店铺营业状态以Redis为准，每个节点在本地保存一份快照，
+ * 修改后通过Redis发布订阅通知所有节点更新快照，并推送给各节点上的WebSocket客户端
+ */
+@Service
+@Slf4j
+public class ShopServiceImpl implements ShopService, MessageListener {
+
+    public static final String KEY = "SHOP_STATUS";
+    public static final String CHANNEL = "sky:shop:status";
+
+    @Autowired
+    private RedisTemplate redisTemplate;
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+    @Autowired
+    private WebSocketServer webSocketServer;
+
+    //本地的店铺营业状态快照
+    private volatile Integer status;
+
+    @PostConstruct
+    public void init() {
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+        refreshStatus();
+    }
+
+    /**
+     * 设置店铺营业状态
+     * @param status
+     */
+    public void setStatus(Integer status) {
+        redisTemplate.opsForValue().set(KEY, status);
+        this.status = status;
+        stringRedisTemplate.convertAndSend(CHANNEL, String.valueOf(status));
+    }
+
+    /**
+     * 获取店铺营业状态，直接读取本地快照
+     * @return
+     */
+    public Integer getStatus() {
+        return status;
+    }
+
+    /**
+     * 从Redis重新加载店铺营业状态，未设置过时视为打烊
+     */
+    public void refreshStatus() {
+        Integer redisStatus = (Integer) redisTemplate.opsForValue().get(KEY);
+        status = redisStatus == null ? StatusConstant.DISABLE : redisStatus;
+    }
+
+    /**
+     * 收到营业状态变更通知，更新本地快照并推送给本节点的客户端
+     * @param message
+     * @param pattern
+     */
+    public void onMessage(Message message, byte[] pattern) {
+        Integer newStatus = Integer.valueOf(new String(message.getBody(), StandardCharsets.UTF_8));
+        status = newStatus;
+        log.info("店铺营业状态变更为：{}", StatusConstant.ENABLE.equals(newStatus) ? "营业中" : "打烊中");
+
+        WebSocketMessage webSocketMessage = WebSocketMessage.builder()
+                .messageType(WebSocketMessageType.SHOP_STATUS)
+                .status(newStatus)
+                .build();
+        //每个节点都会收到变更通知，只推送给本节点的订阅者
+        webSocketServer.publishLocal(webSocketMessage);
+    }
+}
@@ -1,5 +1,6 @@
 package com.sky.service.impl;
 
+import com.sky.cart.CartStore;
 import com.sky.context.BaseContext;
 import com.sky.dto.ShoppingCartDTO;
 import com.sky.entity.Dish;
@@ -7,12 +8,10 @@ import com.sky.entity.Setmeal;
 import com.sky.entity.ShoppingCart;
 import com.sky.mapper.DishMapper;
 import com.sky.mapper.SetmealMapper;
-import com.sky.mapper.ShoppingCartMapper;
 import com.sky.service.ShoppingCartService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.annotation.Bean;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -24,7 +23,7 @@ import java.util.List;
 public class ShoppingCartServiceImpl implements ShoppingCartService {
 
     @Autowired
-    private ShoppingCartMapper shoppingCartMapper;
+    private CartStore cartStore;
     @Autowired
     private DishMapper dishMapper;
     @Autowired
@@ -36,39 +35,34 @@ public class ShoppingCartServiceImpl implements ShoppingCartService {
      */
     @Transactional
     public void addShoppngCart(ShoppingCartDTO shoppingCartDTO) {
-        //判断当前要加入购物车的商品是否已存在
         ShoppingCart shoppingCart = new ShoppingCart();
         BeanUtils.copyProperties(shoppingCartDTO, shoppingCart);
         Long userId = BaseContext.getCurrentId();
         shoppingCart.setUserId(userId);
 
-        List<ShoppingCart> list = shoppingCartMapper.list(shoppingCart);
         //如果已经存在，只需数量加1
-        if(list != null && list.size() >0){
-            ShoppingCart cart = list.get(0);
-            cart.setNumber(cart.getNumber()+ 1 );
-            shoppingCartMapper.update(cart);
+        if (cartStore.increase(shoppingCart)) {
+            return;
+        }
+        //如果不存在，则需要将该条数据插入购物车
+        if (shoppingCartDTO.getDishId() != null){
+            //本次添加的是菜品
+            Dish dish = dishMapper.getById(shoppingCartDTO.getDishId());
+            shoppingCart.setName(dish.getName());
+            shoppingCart.setImage(dish.getImage());
+            shoppingCart.setAmount(dish.getPrice());
         }else {
-            //如果不存在，则需要将该条数据插入购物车
-            if (shoppingCartDTO.getDishId() != null){
-                //本次添加的是菜品
-                Dish dish = dishMapper.getById(shoppingCartDTO.getDishId());
-                shoppingCart.setName(dish.getName());
-                shoppingCart.setImage(dish.getImage());
-                shoppingCart.setAmount(dish.getPrice());
-            }else {
-                //本次添加的是套餐
-                Setmeal setmeal = setmealMapper.getById(shoppingCartDTO.getSetmealId());
-                shoppingCart.setName(setmeal.getName());
-                shoppingCart.setImage(setmeal.getImage());
-                shoppingCart.setAmount(setmeal.getPrice());
-            }
-
-            shoppingCart.setNumber(1);
-            shoppingCart.setCreateTime(LocalDateTime.now());
-            //插入本次购物车数据
-            shoppingCartMapper.insert(shoppingCart);
+            //本次添加的是套餐
+            Setmeal setmeal = setmealMapper.getById(shoppingCartDTO.getSetmealId());
+            shoppingCart.setName(setmeal.getName());
+            shoppingCart.setImage(setmeal.getImage());
+            shoppingCart.setAmount(setmeal.getPrice());
         }
+
+        shoppingCart.setNumber(1);
+        shoppingCart.setCreateTime(LocalDateTime.now());
+        //插入本次购物车数据
+        cartStore.insert(shoppingCart);
     }
 
     /**
@@ -79,11 +73,7 @@ public class ShoppingCartServiceImpl implements ShoppingCartService {
     public List<ShoppingCart> showShoppingCart() {
         //获取当前用户id
         Long userId = BaseContext.getCurrentId();
-        ShoppingCart shoppingCart = ShoppingCart.builder()
-                .id(userId)
-                .build();
-        List<ShoppingCart> shoppingCarts = shoppingCartMapper.list(shoppingCart);
-        return shoppingCarts;
+        return cartStore.list(userId);
     }
 
     /**
@@ -92,7 +82,7 @@ public class ShoppingCartServiceImpl implements ShoppingCartService {
     public void clean() {
         //获取当前用户id
         Long userId = BaseContext.getCurrentId();
-        shoppingCartMapper.deleteByUserId(userId);
+        cartStore.clean(userId);
     }
 
     /**
@@ -100,21 +90,11 @@ public class ShoppingCartServiceImpl implements ShoppingCartService {
      * @param shoppingCartDTO
      */
     public void subDelete(ShoppingCartDTO shoppingCartDTO) {
-        //获取当前商品
         ShoppingCart shoppingCart = new ShoppingCart();
         BeanUtils.copyProperties(shoppingCartDTO,shoppingCart);
         Long userId = BaseContext.getCurrentId();
         shoppingCart.setUserId(userId);
-        List<ShoppingCart> list = shoppingCartMapper.list(shoppingCart);
-        shoppingCart = list.get(0);
-        //判断当前商品的数量，1则删除该商品，大于1则数量减1
-        if (shoppingCart.getNumber() > 1){
-            //数量减1
-            shoppingCart.setNumber(shoppingCart.getNumber() - 1);
-            shoppingCartMapper.update(shoppingCart);
-        }else {
-            //删除该商品
-            shoppingCartMapper.deleteById(shoppingCart.getId());
-        }
+        //数量大于1则减1，等于1则删除该商品
+        cartStore.decrease(shoppingCart);
     }
 }
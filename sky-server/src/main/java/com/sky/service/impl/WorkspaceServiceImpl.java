@@ -1,11 +1,13 @@
 package com.sky.service.impl;
 
 import com.sky.constant.StatusConstant;
+import com.sky.dto.DailyStatisticsDTO;
 import com.sky.entity.Orders;
 import com.sky.mapper.DishMapper;
-import com.sky.mapper.OrderMapper;
 import com.sky.mapper.SetmealMapper;
 import com.sky.mapper.UserMapper;
+import com.sky.order.OrderStatusCounter;
+import com.sky.service.BusinessStatsService;
 import com.sky.service.WorkspaceService;
 import com.sky.vo.BusinessDataVO;
 import com.sky.vo.DishOverViewVO;
@@ -15,25 +17,27 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @Service
 @Slf4j
 public class WorkspaceServiceImpl implements WorkspaceService {
 
-    @Autowired
-    private OrderMapper orderMapper;
     @Autowired
     private UserMapper userMapper;
     @Autowired
     private DishMapper dishMapper;
     @Autowired
     private SetmealMapper setmealMapper;
+    @Autowired
+    private BusinessStatsService businessStatsService;
+    @Autowired
+    private OrderStatusCounter orderStatusCounter;
 
     /**
-     * 根据时间段统计营业数据
+     * 根据时间段统计营业数据，按自然日统计，今天之前的数据读取汇总表
      * @param beginTime
      * @param endTime
      * @return
@@ -47,20 +51,19 @@ public class WorkspaceServiceImpl implements WorkspaceService {
          * 新增用户：当日新增用户的数量
          */
 
-        Map map = new HashMap();
-        map.put("beginTime",beginTime);
-        map.put("endTime",endTime);
+        List<DailyStatisticsDTO> dailyList = businessStatsService.getDailyStatistics(beginTime.toLocalDate(), endTime.toLocalDate());
 
         //查询总订单数
-        Integer totalOrderCount = orderMapper.countByMap(map);
-
-        map.put("status", Orders.COMPLETED);
+        Integer totalOrderCount = 0;
         //营业额
-        Double turnover = orderMapper.sumByMap(map);
-        turnover = turnover == null? 0.0 : turnover;
-
+        Double turnover = 0.0;
         //有效订单数
-        Integer validOrderCount = orderMapper.countByMap(map);
+        Integer validOrderCount = 0;
+        for (DailyStatisticsDTO daily : dailyList) {
+            totalOrderCount += daily.getOrderCount();
+            turnover += daily.getTurnover();
+            validOrderCount += daily.getValidOrderCount();
+        }
 
         Double unitPrice = 0.0;
 
@@ -73,6 +76,9 @@ public class WorkspaceServiceImpl implements WorkspaceService {
         }
 
         //新增用户数
+        Map map = new HashMap();
+        map.put("beginTime",beginTime);
+        map.put("endTime",endTime);
         Integer newUsers = userMapper.countUser(map);
 
         return BusinessDataVO.builder()
@@ -91,28 +97,23 @@ public class WorkspaceServiceImpl implements WorkspaceService {
      * @return
      */
     public OrderOverViewVO getOrderOverView() {
-        Map map = new HashMap();
-        map.put("beginTime", LocalDateTime.now().with(LocalTime.MIN));
-        map.put("status", Orders.TO_BE_CONFIRMED);
+        //当天订单的状态计数由Redis维护，一次读取全部状态
+        Map<Integer, Integer> counts = orderStatusCounter.getToday();
 
         //待接单
-        Integer waitingOrders = orderMapper.countByMap(map);
+        Integer waitingOrders = counts.get(Orders.TO_BE_CONFIRMED);
 
         //待派送
-        map.put("status", Orders.CONFIRMED);
-        Integer deliveredOrders = orderMapper.countByMap(map);
+        Integer deliveredOrders = counts.get(Orders.CONFIRMED);
 
         //已完成
-        map.put("status", Orders.COMPLETED);
-        Integer completedOrders = orderMapper.countByMap(map);
+        Integer completedOrders = counts.get(Orders.COMPLETED);
 
         //已取消
-        map.put("status", Orders.CANCELLED);
-        Integer cancelledOrders = orderMapper.countByMap(map);
+        Integer cancelledOrders = counts.get(Orders.CANCELLED);
 
         //全部订单
-        map.put("status", null);
-        Integer allOrders = orderMapper.countByMap(map);
+        Integer allOrders = counts.values().stream().mapToInt(Integer::intValue).sum();
 
         return OrderOverViewVO.builder()
                 .waitingOrders(waitingOrders)
@@ -0,0 +1,58 @@
+package com.sky.task;
+
+import com.sky.properties.BusinessStatsProperties;
+import com.sky.service.BusinessStatsService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+/**
+ * 定时任务类，定时校正运营数据汇总表，按配置在启动时补建历史汇总数据
+ */
+@Slf4j
+@Component
+public class BusinessStatsTask implements ApplicationRunner {
+
+    @Autowired
+    private BusinessStatsService businessStatsService;
+    @Autowired
+    private BusinessStatsProperties businessStatsProperties;
+
+    /**
+     * 每天凌晨2点根据订单表重新生成最近几天的汇总数据，修正增量统计的偏差
+     */
+    @Scheduled(cron = "0 0 2 * * ?")
+    public void reconcile(){
+        LocalDate end = LocalDate.now().minusDays(1);
+        LocalDate begin = end.minusDays(businessStatsProperties.getReconcileDays() - 1);
+        log.info("定时校正运营数据汇总：{}至{}", begin, end);
+        businessStatsService.rebuild(begin, end);
+    }
+
+    /**
+     * 启动时补建历史汇总数据，每批单独提交，避免一个事务锁住过多数据
+     * @param args
+     */
+    public void run(ApplicationArguments args) {
+        if (!businessStatsProperties.isBackfill()) {
+            return;
+        }
+        LocalDate end = LocalDate.now().minusDays(1);
+        LocalDate first = end.minusDays(businessStatsProperties.getBackfillDays() - 1);
+        log.info("开始补建运营数据汇总：{}至{}", first, end);
+        while (!end.isBefore(first)) {
+            LocalDate begin = end.minusDays(businessStatsProperties.getBackfillBatchDays() - 1);
+            if (begin.isBefore(first)) {
+                begin = first;
+            }
+            businessStatsService.rebuild(begin, end);
+            end = begin.minusDays(1);
+        }
+        log.info("运营数据汇总补建完成");
+    }
+}
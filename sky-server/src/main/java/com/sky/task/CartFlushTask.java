@@ -0,0 +1,26 @@
+package com.sky.task;
+
+import com.sky.cart.CartStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 定时任务类，定时将Redis中修改过的购物车写回数据库
+ */
+@Slf4j
+@Component
+public class CartFlushTask {
+
+    @Autowired
+    private CartStore cartStore;
+
+    /**
+     * 每30秒写回一次
+     */
+    @Scheduled(fixedDelay = 30000)
+    public void flush(){
+        cartStore.flush();
+    }
+}
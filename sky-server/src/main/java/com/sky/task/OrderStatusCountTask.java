@@ -0,0 +1,27 @@
+package com.sky.task;
+
+import com.sky.order.OrderStatusCounter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 定时任务类，定时根据订单表校正Redis中的订单状态计数
+ */
+@Slf4j
+@Component
+public class OrderStatusCountTask {
+
+    @Autowired
+    private OrderStatusCounter orderStatusCounter;
+
+    /**
+     * 每5分钟校正一次
+     */
+    @Scheduled(fixedDelay = 300000)
+    public void reconcile(){
+        log.info("定时校正订单状态计数");
+        orderStatusCounter.reconcile();
+    }
+}
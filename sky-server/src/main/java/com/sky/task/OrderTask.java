@@ -2,6 +2,9 @@ package com.sky.task;
 
 import com.sky.entity.Orders;
 import com.sky.mapper.OrderMapper;
+import com.sky.properties.OrderTaskProperties;
+import com.sky.queue.OrderTimeoutQueue;
+import com.sky.service.OrderService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -19,58 +22,70 @@ public class OrderTask {
 
     @Autowired
     private OrderMapper orderMapper;
+    @Autowired
+    private OrderService orderService;
+    @Autowired
+    private OrderTimeoutQueue orderTimeoutQueue;
+    @Autowired
+    private OrderTaskProperties orderTaskProperties;
+
+    /**
+     * 每秒从延迟队列中取出到期的订单，批量取消
+     */
+    @Scheduled(fixedDelay = 1000)
+    public void processTimeOutQueue(){
+        List<Long> ids;
+        while (!(ids = orderTimeoutQueue.poll()).isEmpty()) {
+            try {
+                List<Long> cancelledIds = orderService.cancelTimeoutOrders(ids);
+                log.info("取消超时订单：到期{}个，取消{}个", ids.size(), cancelledIds.size());
+            } catch (Exception e) {
+                //取消失败时放回队列，下次重试
+                log.error("取消超时订单失败：{}", ids, e);
+                orderTimeoutQueue.retry(ids);
+                return;
+            }
+            if (ids.size() < orderTaskProperties.getBatchSize()) {
+                return;
+            }
+        }
+    }
 
     /**
-     * 处理超时订单
+     * 处理超时订单，兜底延迟队列中丢失的订单（例如Redis数据丢失、登记失败）
      */
-    @Scheduled(cron = "0 * * * * ?")
+    @Scheduled(cron = "0 0/10 * * * ?")
     public void processTimeOutOrder(){
         log.info("定时处理超时订单：{}", LocalDateTime.now());
 
-        //处理状态为未支付，且下单时间为15分钟之前的订单
-        LocalDateTime time = LocalDateTime.now().plusMinutes(-1);
-        List<Orders> ordersList = orderMapper.getByStatusAndOrderTimeOutLT(Orders.PENDING_PAYMENT, time);
-
-        if (ordersList != null && ordersList.size() > 0){
-            for (Orders orders : ordersList) {
-                orders.setStatus(Orders.CANCELLED);
-                orders.setCancelReason("订单超时,自动取消");
-                orders.setCancelTime(LocalDateTime.now());
-                orderMapper.update(orders);
+        //处理状态为未支付，且下单时间超过支付时限的订单
+        LocalDateTime time = LocalDateTime.now().minusMinutes(orderTaskProperties.getPayTimeoutMinutes());
+        List<Long> ids;
+        while (!(ids = orderMapper.getIdsByStatusAndOrderTimeLT(
+                Orders.PENDING_PAYMENT, time, orderTaskProperties.getBatchSize())).isEmpty()) {
+            orderService.cancelTimeoutOrders(ids);
+            if (ids.size() < orderTaskProperties.getBatchSize()) {
+                return;
             }
         }
     }
 
     /**
-     * 定时处理派送中的订单
+     * 定时处理派送中的订单，按批完成派送超过1小时的订单
      */
     @Scheduled(cron = "0 0 1 * * ?")
     public void processDeliverOrder(){
         log.info("定时处理派送中的订单：{}",LocalDateTime.now());
         LocalDateTime time = LocalDateTime.now().plusHours(-1);
 
-        List<Orders> ordersList = orderMapper.getByStatusAndOrderTimeOutLT(Orders.DELIVERY_IN_PROGRESS, time);
-
-        if (ordersList != null && ordersList.size() > 0){
-            for (Orders orders : ordersList) {
-                orders.setStatus(Orders.COMPLETED);
-                orderMapper.update(orders);
+        List<Long> ids;
+        while (!(ids = orderMapper.getIdsByStatusAndOrderTimeLT(
+                Orders.DELIVERY_IN_PROGRESS, time, orderTaskProperties.getBatchSize())).isEmpty()) {
+            List<Long> completedIds = orderService.completeBatch(ids);
+            log.info("自动完成派送中的订单{}个", completedIds.size());
+            if (ids.size() < orderTaskProperties.getBatchSize()) {
+                return;
             }
         }
     }
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
 }
@@ -0,0 +1,68 @@
+package com.sky.task;
+
+import com.sky.properties.SalesRankProperties;
+import com.sky.service.SalesRankService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+/**
+ * 定时任务类，定时根据订单明细校正Redis中的商品销量，启动时补建缺少的销量数据
+ */
+@Slf4j
+@Component
+public class SalesRankTask implements ApplicationRunner {
+
+    @Autowired
+    private SalesRankService salesRankService;
+    @Autowired
+    private SalesRankProperties salesRankProperties;
+
+    /**
+     * 每天凌晨2点半重新生成最近几天的销量数据，修正增量累加的偏差
+     */
+    @Scheduled(cron = "0 30 2 * * ?")
+    public void reconcile(){
+        LocalDate end = LocalDate.now().minusDays(1);
+        LocalDate begin = end.minusDays(salesRankProperties.getReconcileDays() - 1);
+        log.info("定时校正商品销量：{}至{}", begin, end);
+        salesRankService.rebuild(begin, end);
+    }
+
+    /**
+     * 开启补建时，在后台从今天往前为保留期内缺少的日期生成销量数据，查询时无须再同步生成
+     * @param args
+     */
+    public void run(ApplicationArguments args) {
+        if (!salesRankProperties.isBackfill()) {
+            return;
+        }
+        Thread thread = new Thread(this::backfill, "sales-rank-backfill");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void backfill() {
+        LocalDate first = LocalDate.now().minusDays(salesRankProperties.getRetainDays() - 1);
+        LocalDate end = LocalDate.now();
+        log.info("开始补建商品销量：{}至{}", first, end);
+        try {
+            while (!end.isBefore(first)) {
+                LocalDate begin = end.minusDays(salesRankProperties.getBackfillBatchDays() - 1);
+                if (begin.isBefore(first)) {
+                    begin = first;
+                }
+                salesRankService.rebuildMissing(begin, end);
+                end = begin.minusDays(1);
+            }
+            log.info("商品销量补建完成");
+        } catch (Exception e) {
+            log.error("补建商品销量失败，已处理到：{}", end, e);
+        }
+    }
+}
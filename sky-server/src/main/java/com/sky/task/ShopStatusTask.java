@@ -0,0 +1,26 @@
+package com.sky.task;
+
+import com.sky.service.ShopService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 定时任务类，定时从Redis校正本地的店铺营业状态
+ */
+@Slf4j
+@Component
+public class ShopStatusTask {
+
+    @Autowired
+    private ShopService shopService;
+
+    /**
+     * 每分钟从Redis重新加载一次，兜底丢失的状态变更通知
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void refreshStatus(){
+        shopService.refreshStatus();
+    }
+}
@@ -0,0 +1,27 @@
+package com.sky.utils;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 事务相关的工具方法
+ */
+public class TransactionUtils {
+
+    /**
+     * 当前事务提交后执行，事务回滚时不执行；不在事务中时立即执行
+     * 用于写入Redis、推送消息等无法随事务回滚的操作
+     * @param runnable
+     */
+    public static void afterCommit(Runnable runnable) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                public void afterCommit() {
+                    runnable.run();
+                }
+            });
+        } else {
+            runnable.run();
+        }
+    }
+}
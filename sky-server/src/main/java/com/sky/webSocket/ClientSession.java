@@ -0,0 +1,140 @@
+package com.sky.webSocket;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.websocket.CloseReason;
+import javax.websocket.Session;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 客户端连接及其待发送消息队列
+ * 消息先放入有界队列，再通过异步发送逐条发出，同一连接同一时间只有一条消息在发送；
+ * 队列已满说明客户端接收过慢，按配置丢弃最早的消息或断开连接
+ */
+@Slf4j
+public class ClientSession {
+
+    private final String sid;
+    private final Session session;
+    private final BlockingQueue<PendingMessage> queue;
+    private final boolean disconnectSlowConsumer;
+    private final WebSocketSessionRegistry registry;
+    //是否有消息正在发送
+    private final AtomicBoolean sending = new AtomicBoolean(false);
+    //订阅的主题
+    private final Set<String> topics = ConcurrentHashMap.newKeySet();
+
+    public ClientSession(String sid, Session session, int queueCapacity, boolean disconnectSlowConsumer,
+                         WebSocketSessionRegistry registry) {
+        this.sid = sid;
+        this.session = session;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.disconnectSlowConsumer = disconnectSlowConsumer;
+        this.registry = registry;
+    }
+
+    public String getSid() {
+        return sid;
+    }
+
+    public Session getSession() {
+        return session;
+    }
+
+    public Set<String> getTopics() {
+        return topics;
+    }
+
+    /**
+     * 待发送的消息数
+     * @return
+     */
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    /**
+     * 消息放入队列后立即返回，不等待发送完成
+     * @param message
+     */
+    public void send(String message) {
+        PendingMessage pending = new PendingMessage(message, System.nanoTime());
+        while (!queue.offer(pending)) {
+            if (disconnectSlowConsumer) {
+                registry.recordDisconnected();
+                close();
+                return;
+            }
+            //丢弃最早的消息，为新消息腾出位置
+            if (queue.poll() != null) {
+                registry.recordDropped();
+            }
+        }
+        drain();
+    }
+
+    /**
+     * 取出下一条消息异步发送，发送完成后在回调中继续发送下一条
+     */
+    private void drain() {
+        while (true) {
+            if (!sending.compareAndSet(false, true)) {
+                return;
+            }
+            PendingMessage pending = queue.poll();
+            if (pending != null) {
+                sendAsync(pending);
+                return;
+            }
+            sending.set(false);
+            //释放发送标记后可能有新消息入队，再检查一次
+            if (queue.isEmpty()) {
+                return;
+            }
+        }
+    }
+
+    private void sendAsync(PendingMessage pending) {
+        try {
+            session.getAsyncRemote().sendText(pending.text, result -> {
+                registry.recordSend(System.nanoTime() - pending.enqueueNanos);
+                if (!result.isOK()) {
+                    log.warn("WebSocket消息发送失败：{}", sid, result.getException());
+                }
+                sending.set(false);
+                drain();
+            });
+        } catch (Exception e) {
+            //连接已关闭等情况，丢弃队列中的消息
+            log.warn("WebSocket消息发送失败：{}", sid, e);
+            queue.clear();
+            sending.set(false);
+        }
+    }
+
+    private void close() {
+        log.warn("WebSocket客户端接收过慢，断开连接：{}", sid);
+        queue.clear();
+        try {
+            session.close(new CloseReason(CloseReason.CloseCodes.TRY_AGAIN_LATER, "slow consumer"));
+        } catch (IOException e) {
+            log.warn("关闭WebSocket连接失败：{}", sid, e);
+        }
+    }
+
+    private static class PendingMessage {
+        private final String text;
+        //入队时间，用于统计从广播到发送完成的耗时
+        private final long enqueueNanos;
+
+        private PendingMessage(String text, long enqueueNanos) {
+            this.text = text;
+            this.enqueueNanos = enqueueNanos;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.sky.webSocket;
+
+import com.alibaba.fastjson.JSON;
+import com.sky.enumeration.WebSocketMessageType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * 跨节点的WebSocket消息发布
+ * 消息先推送给本节点的订阅者，再通过Redis发布一次，其他节点收到后推送给各自的订阅者；
+ * 发布的内容为“节点标识 + 换行 + 主题 + 换行 + 消息”，主题为空表示群发，
+ * 消息本身只序列化一次，节点忽略自己发布的消息；
+ * 一批订单的状态变更发布为一条消息，主题为不带订单id的order.status，消息为“状态:订单id,订单id...”，
+ * 各节点只为本节点有订阅者的订单生成消息
+ */
+@Slf4j
+@Component
+public class WebSocketBroadcaster implements MessageListener {
+
+    public static final String CHANNEL = "sky:ws:broadcast";
+    private static final char SEPARATOR = '\n';
+    //订单状态批量变更的主题，客户端只能订阅带订单id的主题，不会与之冲突
+    private static final String ORDER_STATUS_BATCH = WebSocketMessageType.ORDER_STATUS.getTopic();
+
+    //本节点标识，每次启动重新生成
+    private final String nodeId = UUID.randomUUID().toString();
+
+    @Autowired
+    private WebSocketSessionRegistry webSocketSessionRegistry;
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    @PostConstruct
+    public void init() {
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+    }
+
+    /**
+     * 推送给所有节点上该主题的订阅者
+     * @param topic
+     * @param message
+     */
+    public void publish(String topic, String message) {
+        webSocketSessionRegistry.publish(topic, message);
+        send(topic, message);
+    }
+
+    /**
+     * 推送给所有节点的客户端
+     * @param message
+     */
+    public void broadcast(String message) {
+        webSocketSessionRegistry.broadcast(message);
+        send("", message);
+    }
+
+    /**
+     * 推送一批订单的新状态给所有节点上订阅了这些订单的客户端
+     * @param orderIds
+     * @param status
+     */
+    public void publishOrderStatus(List<Long> orderIds, Integer status) {
+        if (orderIds.isEmpty()) {
+            return;
+        }
+        publishOrderStatusLocal(orderIds, status);
+        String ids = orderIds.stream().map(String::valueOf).collect(Collectors.joining(","));
+        send(ORDER_STATUS_BATCH, status + ":" + ids);
+    }
+
+    /**
+     * 收到其他节点发布的消息，推送给本节点的客户端
+     * @param message
+     * @param pattern
+     */
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int nodeEnd = body.indexOf(SEPARATOR);
+        int topicEnd = nodeEnd < 0 ? -1 : body.indexOf(SEPARATOR, nodeEnd + 1);
+        if (topicEnd < 0 || nodeId.equals(body.substring(0, nodeEnd))) {
+            return;
+        }
+        String topic = body.substring(nodeEnd + 1, topicEnd);
+        String payload = body.substring(topicEnd + 1);
+        if (topic.isEmpty()) {
+            webSocketSessionRegistry.broadcast(payload);
+        } else if (ORDER_STATUS_BATCH.equals(topic)) {
+            onOrderStatus(payload);
+        } else {
+            webSocketSessionRegistry.publish(topic, payload);
+        }
+    }
+
+    private void onOrderStatus(String payload) {
+        int statusEnd = payload.indexOf(':');
+        Integer status = Integer.valueOf(payload.substring(0, statusEnd));
+        List<Long> orderIds = new ArrayList<>();
+        for (String id : payload.substring(statusEnd + 1).split(",")) {
+            orderIds.add(Long.valueOf(id));
+        }
+        publishOrderStatusLocal(orderIds, status);
+    }
+
+    private void publishOrderStatusLocal(List<Long> orderIds, Integer status) {
+        for (Long orderId : orderIds) {
+            String topic = WebSocketMessage.orderStatusTopic(orderId);
+            //大部分订单没有订阅者，不生成消息
+            if (webSocketSessionRegistry.hasSubscribers(topic)) {
+                webSocketSessionRegistry.publish(topic, JSON.toJSONString(WebSocketMessage.builder()
+                        .messageType(WebSocketMessageType.ORDER_STATUS)
+                        .orderId(orderId)
+                        .status(status)
+                        .build()));
+            }
+        }
+    }
+
+    private void send(String topic, String message) {
+        try {
+            stringRedisTemplate.convertAndSend(CHANNEL, nodeId + SEPARATOR + topic + SEPARATOR + message);
+        } catch (Exception e) {
+            //本节点的客户端已经收到，其他节点的客户端本次收不到
+            log.error("发布WebSocket消息失败：{}", topic, e);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.sky.webSocket;
+
+import com.alibaba.fastjson.annotation.JSONField;
+import com.sky.enumeration.WebSocketMessageType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 推送给WebSocket客户端的消息，为空的字段不会输出
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class WebSocketMessage {
+
+    @JSONField(serialize = false)
+    private WebSocketMessageType messageType;
+
+    //订单id
+    private Long orderId;
+
+    //提示内容
+    private String content;
+
+    //店铺营业状态或订单状态
+    private Integer status;
+
+    /**
+     * 推送给客户端的消息类型编号
+     * @return
+     */
+    public int getType() {
+        return messageType.getCode();
+    }
+
+    /**
+     * 消息发布到的主题，订单状态变更按订单区分主题
+     * @return
+     */
+    @JSONField(serialize = false)
+    public String getTopic() {
+        if (messageType == WebSocketMessageType.ORDER_STATUS) {
+            return orderStatusTopic(orderId);
+        }
+        return messageType.getTopic();
+    }
+
+    public static String orderStatusTopic(Long orderId) {
+        return WebSocketMessageType.ORDER_STATUS.getTopic() + ":" + orderId;
+    }
+}
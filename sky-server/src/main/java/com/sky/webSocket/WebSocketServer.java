@@ -1,5 +1,10 @@
 package com.sky.webSocket;
 
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import javax.websocket.OnClose;
 import javax.websocket.OnMessage;
@@ -7,37 +12,69 @@ import javax.websocket.OnOpen;
 import javax.websocket.Session;
 import javax.websocket.server.PathParam;
 import javax.websocket.server.ServerEndpoint;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
 
 /**
  * WebSocket服务
+ * 容器为每个连接创建一个端点实例，连接统一保存在WebSocketSessionRegistry中；
+ * 客户端可以在连接地址上通过topics参数指定订阅的主题（逗号分隔），
+ * 也可以发送{"subscribe":[主题]}或{"unsubscribe":[主题]}修改订阅，未指定时订阅来单、催单和店铺状态
  */
+@Slf4j
 @Component
 @ServerEndpoint("/ws/{sid}")
 public class WebSocketServer {
 
-    //存放会话对象
-    private static Map<String, Session> sessionMap = new HashMap();
+    //端点实例不由Spring创建，通过静态字段共享注册表和跨节点发布组件
+    private static WebSocketSessionRegistry registry;
+    private static WebSocketBroadcaster broadcaster;
+
+    @Autowired
+    public void setRegistry(WebSocketSessionRegistry registry) {
+        WebSocketServer.registry = registry;
+    }
+
+    @Autowired
+    public void setBroadcaster(WebSocketBroadcaster broadcaster) {
+        WebSocketServer.broadcaster = broadcaster;
+    }
 
     /**
      * 连接建立成功调用的方法
      */
     @OnOpen
     public void onOpen(Session session, @PathParam("sid") String sid) {
-        System.out.println("客户端：" + sid + "建立连接");
-        sessionMap.put(sid, session);
+        List<String> topics = session.getRequestParameterMap().get("topics");
+        Collection<String> topicList = topics == null || topics.isEmpty()
+                ? WebSocketSessionRegistry.DEFAULT_TOPICS
+                : Arrays.asList(String.join(",", topics).split(","));
+        log.info("客户端：{}建立连接，订阅主题：{}", sid, topicList);
+        registry.register(sid, session, topicList);
     }
 
     /**
-     * 收到客户端消息后调用的方法
+     * 收到客户端消息后调用的方法，用于修改订阅的主题
      *
      * @param message 客户端发送过来的消息
      */
     @OnMessage
     public void onMessage(String message, @PathParam("sid") String sid) {
-        System.out.println("收到来自客户端：" + sid + "的信息:" + message);
+        log.info("收到来自客户端：{}的信息:{}", sid, message);
+        try {
+            JSONObject jsonObject = JSON.parseObject(message);
+            JSONArray subscribe = jsonObject.getJSONArray("subscribe");
+            if (subscribe != null) {
+                registry.subscribe(sid, subscribe.toJavaList(String.class));
+            }
+            JSONArray unsubscribe = jsonObject.getJSONArray("unsubscribe");
+            if (unsubscribe != null) {
+                registry.unsubscribe(sid, unsubscribe.toJavaList(String.class));
+            }
+        } catch (Exception e) {
+            log.warn("无法解析客户端：{}的消息", sid);
+        }
     }
 
     /**
@@ -46,26 +83,46 @@ public class WebSocketServer {
      * @param sid
      */
     @OnClose
-    public void onClose(@PathParam("sid") String sid) {
-        System.out.println("连接断开:" + sid);
-        sessionMap.remove(sid);
+    public void onClose(Session session, @PathParam("sid") String sid) {
+        log.info("连接断开:{}", sid);
+        registry.unregister(sid, session);
+    }
+
+    /**
+     * 发布消息给所有节点上订阅了对应主题的客户端，放入发送队列后立即返回
+     *
+     * @param message
+     */
+    public void publish(WebSocketMessage message) {
+        broadcaster.publish(message.getTopic(), JSON.toJSONString(message));
     }
 
     /**
-     * 群发
+     * 发布一批订单的新状态，所有节点各自推送给订阅了其中订单的客户端，整批只通过Redis发布一次
+     *
+     * @param orderIds
+     * @param status
+     */
+    public void publishOrderStatus(List<Long> orderIds, Integer status) {
+        broadcaster.publishOrderStatus(orderIds, status);
+    }
+
+    /**
+     * 只发布给本节点的订阅者，用于每个节点都会各自收到的通知
+     *
+     * @param message
+     */
+    public void publishLocal(WebSocketMessage message) {
+        registry.publish(message.getTopic(), JSON.toJSONString(message));
+    }
+
+    /**
+     * 群发给所有节点的全部客户端，不区分主题
      *
      * @param message
      */
     public void sendToAllClient(String message) {
-        Collection<Session> sessions = sessionMap.values();
-        for (Session session : sessions) {
-            try {
-                //服务器向客户端发送消息
-                session.getBasicRemote().sendText(message);
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        }
+        broadcaster.broadcast(message);
     }
 
 }
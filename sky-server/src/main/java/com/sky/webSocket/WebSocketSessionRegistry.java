@@ -0,0 +1,221 @@
+package com.sky.webSocket;
+
+import com.sky.enumeration.WebSocketMessageType;
+import com.sky.properties.WebSocketProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.websocket.Session;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * WebSocket连接注册表
+ * 保存所有客户端连接及每个主题的订阅者，发布消息时只放入订阅者的队列后立即返回；
+ * 通过Micrometer统计连接数、主题数、待发送消息数、发送耗时、丢弃的消息数和断开的慢连接数
+ */
+@Slf4j
+@Component
+public class WebSocketSessionRegistry {
+
+    private static final String DISCONNECT = "disconnect";
+
+    //连接时未指定主题的客户端默认订阅的主题，与原先群发的消息一致
+    public static final List<String> DEFAULT_TOPICS = Arrays.asList(WebSocketMessageType.ORDER_NEW.getTopic(),
+            WebSocketMessageType.ORDER_REMINDER.getTopic(), WebSocketMessageType.SHOP_STATUS.getTopic());
+    //每个连接最多订阅的主题数
+    private static final int MAX_TOPICS_PER_SESSION = 100;
+
+    private final Map<String, ClientSession> sessions = new ConcurrentHashMap<>();
+    //主题 -> 订阅该主题的连接
+    private final Map<String, Set<ClientSession>> subscribers = new ConcurrentHashMap<>();
+    private final WebSocketProperties webSocketProperties;
+    private final Timer sendTimer;
+    private final Counter droppedCounter;
+    private final Counter disconnectedCounter;
+
+    public WebSocketSessionRegistry(WebSocketProperties webSocketProperties, MeterRegistry meterRegistry) {
+        this.webSocketProperties = webSocketProperties;
+        Gauge.builder("websocket.sessions", sessions, Map::size)
+                .description("WebSocket连接数")
+                .register(meterRegistry);
+        Gauge.builder("websocket.topics", subscribers, Map::size)
+                .description("有订阅者的主题数")
+                .register(meterRegistry);
+        Gauge.builder("websocket.queue.depth", this, WebSocketSessionRegistry::getQueueDepth)
+                .description("所有连接待发送的消息数")
+                .register(meterRegistry);
+        this.sendTimer = Timer.builder("websocket.send.latency")
+                .description("消息从发布到发送完成的耗时")
+                .register(meterRegistry);
+        this.droppedCounter = Counter.builder("websocket.messages.dropped")
+                .description("队列已满时丢弃的消息数")
+                .register(meterRegistry);
+        this.disconnectedCounter = Counter.builder("websocket.slow.disconnected")
+                .description("接收过慢被断开的连接数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 登记新连接并订阅主题，同一个sid重复连接时替换旧连接
+     * @param sid
+     * @param session
+     * @param topics
+     */
+    public void register(String sid, Session session, Collection<String> topics) {
+        session.getAsyncRemote().setSendTimeout(webSocketProperties.getSendTimeoutMillis());
+        boolean disconnect = DISCONNECT.equals(webSocketProperties.getSlowConsumerPolicy());
+        ClientSession client = new ClientSession(sid, session, webSocketProperties.getQueueCapacity(), disconnect, this);
+        ClientSession old = sessions.put(sid, client);
+        if (old != null) {
+            removeSubscriptions(old);
+        }
+        subscribe(client, topics);
+    }
+
+    /**
+     * 移除连接及其订阅，只移除与关闭的会话对应的连接，避免误删同一个sid的新连接
+     * @param sid
+     * @param session
+     */
+    public void unregister(String sid, Session session) {
+        ClientSession client = sessions.get(sid);
+        if (client != null && client.getSession().getId().equals(session.getId()) && sessions.remove(sid, client)) {
+            removeSubscriptions(client);
+        }
+    }
+
+    /**
+     * 为已有连接订阅主题
+     * @param sid
+     * @param topics
+     */
+    public void subscribe(String sid, Collection<String> topics) {
+        ClientSession client = sessions.get(sid);
+        if (client != null) {
+            subscribe(client, topics);
+        }
+    }
+
+    /**
+     * 取消已有连接对主题的订阅
+     * @param sid
+     * @param topics
+     */
+    public void unsubscribe(String sid, Collection<String> topics) {
+        ClientSession client = sessions.get(sid);
+        if (client == null) {
+            return;
+        }
+        for (String topic : topics) {
+            if (client.getTopics().remove(topic)) {
+                removeSubscriber(topic, client);
+            }
+        }
+    }
+
+    /**
+     * 发布消息到主题，只推送给该主题的订阅者
+     * @param topic
+     * @param message
+     */
+    public void publish(String topic, String message) {
+        Set<ClientSession> clients = subscribers.get(topic);
+        if (clients != null) {
+            clients.forEach(client -> client.send(message));
+        }
+    }
+
+    /**
+     * 主题在本节点是否有订阅者
+     * @param topic
+     * @return
+     */
+    public boolean hasSubscribers(String topic) {
+        return subscribers.containsKey(topic);
+    }
+
+    /**
+     * 群发给所有连接，不区分主题
+     * @param message
+     */
+    public void broadcast(String message) {
+        sessions.values().forEach(client -> client.send(message));
+    }
+
+    public int getQueueDepth() {
+        return sessions.values().stream().mapToInt(ClientSession::getQueueSize).sum();
+    }
+
+    private void subscribe(ClientSession client, Collection<String> topics) {
+        for (String topic : topics) {
+            if (!isValidTopic(topic)) {
+                log.warn("忽略无效的WebSocket订阅主题：{} {}", client.getSid(), topic);
+                continue;
+            }
+            if (client.getTopics().size() >= MAX_TOPICS_PER_SESSION) {
+                log.warn("WebSocket订阅主题过多：{}", client.getSid());
+                return;
+            }
+            if (client.getTopics().add(topic)) {
+                subscribers.compute(topic, (key, clients) -> {
+                    if (clients == null) {
+                        clients = ConcurrentHashMap.newKeySet();
+                    }
+                    clients.add(client);
+                    return clients;
+                });
+            }
+        }
+    }
+
+    private void removeSubscriptions(ClientSession client) {
+        client.getTopics().forEach(topic -> removeSubscriber(topic, client));
+        client.getTopics().clear();
+    }
+
+    private void removeSubscriber(String topic, ClientSession client) {
+        //没有订阅者的主题及时移除，避免按订单订阅的主题越积越多
+        subscribers.computeIfPresent(topic, (key, clients) -> {
+            clients.remove(client);
+            return clients.isEmpty() ? null : clients;
+        });
+    }
+
+    private boolean isValidTopic(String topic) {
+        if (topic == null) {
+            return false;
+        }
+        String prefix = WebSocketMessageType.ORDER_STATUS.getTopic() + ":";
+        if (topic.startsWith(prefix)) {
+            return topic.length() > prefix.length() && topic.substring(prefix.length()).chars().allMatch(Character::isDigit);
+        }
+        for (WebSocketMessageType type : WebSocketMessageType.values()) {
+            if (type != WebSocketMessageType.ORDER_STATUS && type.getTopic().equals(topic)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void recordSend(long nanos) {
+        sendTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    void recordDropped() {
+        droppedCounter.increment();
+    }
+
+    void recordDisconnected() {
+        disconnectedCounter.increment();
+    }
+}
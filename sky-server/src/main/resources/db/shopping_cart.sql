@@ -0,0 +1,16 @@
+-- 购物车中的商品由用户、菜品、套餐、口味唯一确定，唯一索引不能直接建在可为空的列上，
+-- 因此通过生成列把它们拼接为一个非空的值，ShoppingCartMapper中的on duplicate key依赖该唯一索引。
+-- 已有重复数据时需先合并，否则添加唯一索引会失败
+alter table shopping_cart
+    add column cart_key varchar(128) as
+        (concat(ifnull(dish_id, 0), '-', ifnull(setmeal_id, 0), '-', ifnull(dish_flavor, ''))) stored,
+    add unique key uk_user_cart (user_id, cart_key);
+
+-- 购物车使用Redis存储（sky.cart.store=redis）时，记录每个用户最后一次写回数据库的购物车版本，
+-- 回写时版本不比该记录新的快照会被丢弃，避免多个节点回写同一用户时旧数据覆盖新数据
+create table if not exists shopping_cart_version
+(
+    user_id bigint not null comment '用户id',
+    version bigint not null comment '最后一次写回的购物车版本',
+    primary key (user_id)
+) comment '购物车回写版本';
@@ -0,0 +1,77 @@
+package com.sky.cache;
+
+import com.sky.result.Result;
+import com.sky.vo.DishVO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 比较各序列化格式的数据大小和耗时（JMH），直接运行main方法
+ * 数据为一个分类下的菜品列表，与dishCache中缓存的内容一致；compressThreshold为-1表示不压缩
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompactRedisSerializerBenchmark {
+
+    @Param({CompactRedisSerializer.FORMAT_JDK, CompactRedisSerializer.FORMAT_JSON, CompactRedisSerializer.FORMAT_SMILE})
+    public String format;
+
+    @Param({"-1", "1024"})
+    public int compressThreshold;
+
+    private CompactRedisSerializer serializer;
+    private Result<List<DishVO>> value;
+    private byte[] bytes;
+
+    @Setup
+    public void setUp() {
+        serializer = new CompactRedisSerializer(format, compressThreshold);
+        value = Result.success(CompactRedisSerializerTest.dishes(20));
+        bytes = serializer.serialize(value);
+    }
+
+    @Benchmark
+    public byte[] write() {
+        return serializer.serialize(value);
+    }
+
+    @Benchmark
+    public Object read() {
+        return serializer.deserialize(bytes);
+    }
+
+    public static void main(String[] args) throws Exception {
+        //JMH不统计数据大小，先输出各格式序列化后的字节数
+        Result<List<DishVO>> value = Result.success(CompactRedisSerializerTest.dishes(20));
+        System.out.printf("%-6s %-10s %10s%n", "format", "compress", "bytes");
+        for (String format : new String[]{CompactRedisSerializer.FORMAT_JDK, CompactRedisSerializer.FORMAT_JSON,
+                CompactRedisSerializer.FORMAT_SMILE}) {
+            for (int threshold : new int[]{-1, 1024}) {
+                System.out.printf("%-6s %-10s %10d%n", format, threshold < 0 ? "off" : ">" + threshold,
+                        new CompactRedisSerializer(format, threshold).serialize(value).length);
+            }
+        }
+
+        new Runner(new OptionsBuilder()
+                .include(CompactRedisSerializerBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,67 @@
+package com.sky.cache;
+
+import com.sky.entity.DishFlavor;
+import com.sky.result.Result;
+import com.sky.vo.DishVO;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class CompactRedisSerializerTest {
+
+    @Test
+    public void roundTripInEveryFormat() {
+        Result<List<DishVO>> value = Result.success(dishes(20));
+        for (String format : new String[]{CompactRedisSerializer.FORMAT_JSON, CompactRedisSerializer.FORMAT_SMILE,
+                CompactRedisSerializer.FORMAT_JDK}) {
+            CompactRedisSerializer serializer = new CompactRedisSerializer(format, 1024);
+            assertEquals(value, serializer.deserialize(serializer.serialize(value)), format);
+        }
+    }
+
+    @Test
+    public void readsDataWrittenInAnotherFormat() {
+        Result<List<DishVO>> value = Result.success(dishes(3));
+        byte[] smile = new CompactRedisSerializer(CompactRedisSerializer.FORMAT_SMILE, -1).serialize(value);
+        assertEquals(value, new CompactRedisSerializer(CompactRedisSerializer.FORMAT_JSON, -1).deserialize(smile));
+    }
+
+    @Test
+    public void rejectsTypesOutsideAllowList() {
+        CompactRedisSerializer serializer = new CompactRedisSerializer(CompactRedisSerializer.FORMAT_JSON, -1);
+        byte[] bytes = "[\"java.net.URL\",\"http://localhost\"]".getBytes(StandardCharsets.UTF_8);
+        assertThrows(SerializationException.class, () -> serializer.deserialize(bytes));
+    }
+
+    static List<DishVO> dishes(int count) {
+        //与数据库读出的时间一样带有秒以下的部分；Java 8的now()只到毫秒，补齐到纳秒
+        LocalDateTime updateTime = LocalDateTime.now().withNano(123_456_789);
+        List<DishVO> list = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            DishVO dishVO = new DishVO();
+            dishVO.setId((long) i);
+            dishVO.setName("菜品" + i);
+            dishVO.setCategoryId(1L);
+            dishVO.setPrice(new BigDecimal("28.00"));
+            dishVO.setImage("https://sky-take-out.oss-cn-beijing.aliyuncs.com/dish-" + i + ".png");
+            dishVO.setDescription("这是第" + i + "道菜的描述");
+            dishVO.setStatus(1);
+            dishVO.setUpdateTime(updateTime);
+            DishFlavor flavor = new DishFlavor();
+            flavor.setName("辣度");
+            flavor.setValue("[\"不辣\",\"微辣\",\"中辣\",\"重辣\"]");
+            dishVO.setFlavors(new ArrayList<>(Collections.singletonList(flavor)));
+            list.add(dishVO);
+        }
+        return list;
+    }
+}
@@ -0,0 +1,134 @@
+package com.sky.cart;
+
+import com.sky.entity.ShoppingCart;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 购物车并发压力测试，直接读写配置的MySQL数据库，需先执行db/shopping_cart.sql
+ * 运行方式：mvn test -Dtest=MysqlCartStoreStressTest -Dsky.stress-test=true
+ */
+@SpringBootTest(properties = "sky.cart.store=mysql")
+@EnabledIfSystemProperty(named = "sky.stress-test", matches = "true")
+public class MysqlCartStoreStressTest {
+
+    //测试使用的用户id，不会与真实用户冲突
+    private static final Long USER_ID = -1L;
+    private static final int THREADS = 16;
+
+    @Autowired
+    private CartStore cartStore;
+
+    @AfterEach
+    public void clean() {
+        cartStore.clean(USER_ID);
+    }
+
+    /**
+     * 多个线程同时添加同一商品，只会有一行，数量等于添加的次数
+     */
+    @Test
+    public void concurrentAddKeepsOneLine() throws Exception {
+        int timesPerThread = 50;
+        runConcurrently(THREADS, () -> {
+            for (int i = 0; i < timesPerThread; i++) {
+                add();
+            }
+        });
+
+        List<ShoppingCart> list = cartStore.list(USER_ID);
+        assertEquals(1, list.size());
+        assertEquals(THREADS * timesPerThread, list.get(0).getNumber().intValue());
+    }
+
+    /**
+     * 数量为1时同时减少和添加，无论先后最终数量都应为1，不能出现减少被忽略后数量变为2
+     */
+    @Test
+    public void concurrentAddAndDecreaseAtLastItem() throws Exception {
+        for (int round = 0; round < 200; round++) {
+            cartStore.clean(USER_ID);
+            add();
+
+            CyclicBarrier barrier = new CyclicBarrier(2);
+            ExecutorService executor = Executors.newFixedThreadPool(2);
+            try {
+                Future<?> decrease = executor.submit(() -> {
+                    barrier.await();
+                    cartStore.decrease(line());
+                    return null;
+                });
+                Future<?> add = executor.submit(() -> {
+                    barrier.await();
+                    add();
+                    return null;
+                });
+                decrease.get();
+                add.get();
+            } finally {
+                executor.shutdown();
+            }
+
+            List<ShoppingCart> list = cartStore.list(USER_ID);
+            assertEquals(1, list.size(), "round " + round);
+            assertEquals(1, list.get(0).getNumber().intValue(), "round " + round);
+        }
+    }
+
+    /**
+     * 与添加购物车接口相同：已有该商品时数量加1，否则插入
+     */
+    private void add() {
+        if (cartStore.increase(line())) {
+            return;
+        }
+        ShoppingCart shoppingCart = line();
+        shoppingCart.setName("压力测试菜品");
+        shoppingCart.setAmount(BigDecimal.ONE);
+        shoppingCart.setNumber(1);
+        shoppingCart.setCreateTime(LocalDateTime.now());
+        cartStore.insert(shoppingCart);
+    }
+
+    private ShoppingCart line() {
+        return ShoppingCart.builder()
+                .userId(USER_ID)
+                .dishId(1L)
+                .dishFlavor("不辣")
+                .build();
+    }
+
+    private void runConcurrently(int threads, Runnable task) throws Exception {
+        CyclicBarrier barrier = new CyclicBarrier(threads);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    barrier.await();
+                    task.run();
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.sky.order;
+
+import com.sky.properties.OrderFeedProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.core.StreamOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class OrderFeedTest {
+
+    private final BlockingQueue<SseEmitter> emitters = new ArrayBlockingQueue<>(10);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private OrderFeed orderFeed;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        StringRedisTemplate stringRedisTemplate = mock(StringRedisTemplate.class);
+        when(stringRedisTemplate.opsForStream()).thenReturn(mock(StreamOperations.class));
+
+        OrderFeedProperties orderFeedProperties = new OrderFeedProperties();
+        orderFeedProperties.setSenderThreads(1);
+        orderFeedProperties.setSendTimeoutMillis(200);
+
+        orderFeed = new OrderFeed() {
+            SseEmitter createEmitter() {
+                return emitters.poll();
+            }
+        };
+        ReflectionTestUtils.setField(orderFeed, "stringRedisTemplate", stringRedisTemplate);
+        ReflectionTestUtils.setField(orderFeed, "orderFeedProperties", orderFeedProperties);
+        orderFeed.initSender();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        release.countDown();
+        orderFeed.destroy();
+    }
+
+    /**
+     * 一个连接的客户端从不读取，发送一直阻塞，只有一个发送线程时其他连接仍能收到所有事件
+     */
+    @Test
+    public void clientThatNeverReadsDoesNotBlockOthers() throws Exception {
+        AtomicInteger stuckSends = new AtomicInteger();
+        emitters.add(new SseEmitter() {
+            public void send(SseEventBuilder builder) throws IOException {
+                stuckSends.incrementAndGet();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        CountDownLatch received = new CountDownLatch(4);
+        emitters.add(new SseEmitter() {
+            public void send(SseEventBuilder builder) {
+                received.countDown();
+            }
+        });
+
+        orderFeed.subscribe(null, () -> "snapshot");
+        orderFeed.subscribe(null, () -> "snapshot");
+        for (int i = 1; i <= 3; i++) {
+            orderFeed.dispatch(RecordId.of(1, i), "event" + i);
+        }
+
+        //快照和3个事件
+        assertTrue(received.await(5, TimeUnit.SECONDS));
+        //超时的连接已断开，不再发送后续事件
+        assertEquals(1, stuckSends.get());
+    }
+}
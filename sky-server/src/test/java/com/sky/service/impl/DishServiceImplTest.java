@@ -0,0 +1,68 @@
+package com.sky.service.impl;
+
+import com.sky.entity.Dish;
+import com.sky.entity.DishFlavor;
+import com.sky.mapper.DishFlavorMapper;
+import com.sky.mapper.DishMapper;
+import com.sky.vo.DishVO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class DishServiceImplTest {
+
+    private DishMapper dishMapper;
+    private DishFlavorMapper dishFlavorMapper;
+    private DishServiceImpl dishService;
+
+    @BeforeEach
+    public void setUp() {
+        dishMapper = mock(DishMapper.class);
+        dishFlavorMapper = mock(DishFlavorMapper.class);
+        dishService = new DishServiceImpl();
+        ReflectionTestUtils.setField(dishService, "dishMapper", dishMapper);
+        ReflectionTestUtils.setField(dishService, "dishFlavorMapper", dishFlavorMapper);
+    }
+
+    /**
+     * 缓存未命中时查询分类下的菜品和口味，查询次数与菜品数量无关
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {1, 40})
+    public void listWithFlavorQueriesFlavorsOnce(int dishCount) {
+        List<Dish> dishes = new ArrayList<>();
+        List<DishFlavor> flavors = new ArrayList<>();
+        for (long id = 1; id <= dishCount; id++) {
+            dishes.add(Dish.builder().id(id).name("菜品" + id).categoryId(1L).build());
+            flavors.add(DishFlavor.builder().dishId(id).name("辣度").value("[\"不辣\",\"微辣\"]").build());
+            flavors.add(DishFlavor.builder().dishId(id).name("温度").value("[\"热饮\",\"常温\"]").build());
+        }
+        when(dishMapper.list(any())).thenReturn(dishes);
+        when(dishFlavorMapper.getByDishIds(anyList())).thenReturn(flavors);
+
+        List<DishVO> dishVOList = dishService.listWithFlavor(Dish.builder().categoryId(1L).build());
+
+        verify(dishMapper, times(1)).list(any());
+        verify(dishFlavorMapper, times(1)).getByDishIds(anyList());
+        verify(dishFlavorMapper, never()).getByDishId(anyLong());
+        assertEquals(dishCount, dishVOList.size());
+        for (DishVO dishVO : dishVOList) {
+            assertEquals(2, dishVO.getFlavors().size());
+            dishVO.getFlavors().forEach(flavor -> assertEquals(dishVO.getId(), flavor.getDishId()));
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.sky.service.impl;
+
+import com.github.pagehelper.Page;
+import com.github.pagehelper.PageHelper;
+import com.sky.dto.OrdersPageQueryDTO;
+import com.sky.entity.Orders;
+import com.sky.mapper.OrderMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * 比较翻到第1000页时偏移分页和游标分页的耗时，直接读取配置的MySQL数据库，订单表至少需要10000条数据
+ * 运行方式：mvn test -Dtest=OrderPagingBenchmarkTest -Dsky.stress-test=true
+ * 偏移分页需要先统计总数，再扫描并丢弃前9990条订单，耗时随页码线性增长；
+ * 游标分页从上一页最后一个订单的位置沿(order_time, id)索引直接定位，耗时与第1页相同
+ */
+@SpringBootTest
+@EnabledIfSystemProperty(named = "sky.stress-test", matches = "true")
+public class OrderPagingBenchmarkTest {
+
+    private static final int PAGE = 1000;
+    private static final int PAGE_SIZE = 10;
+    private static final int WARMUP = 20;
+    private static final int ITERATIONS = 100;
+
+    @Autowired
+    private OrderMapper orderMapper;
+
+    @Test
+    public void page1000OffsetVsCursor() {
+        //游标分页翻到第1000页时，客户端持有第999页最后一个订单的游标
+        PageHelper.startPage(PAGE - 1, PAGE_SIZE);
+        Page<Orders> previous = orderMapper.pageQuery(new OrdersPageQueryDTO());
+        assumeTrue(previous.getTotal() >= (long) PAGE * PAGE_SIZE, "订单表数据不足");
+        Orders last = previous.getResult().get(PAGE_SIZE - 1);
+
+        //偏移分页只按下单时间排序，下单时间相同的订单顺序不固定，只比较条数
+        assertEquals(offset().size(), cursor(last).size());
+
+        for (int i = 0; i < WARMUP; i++) {
+            offset();
+            cursor(last);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            offset();
+        }
+        long offsetMicros = (System.nanoTime() - start) / ITERATIONS / 1000;
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            cursor(last);
+        }
+        long cursorMicros = (System.nanoTime() - start) / ITERATIONS / 1000;
+
+        System.out.printf("第%d页（每页%d条）：偏移分页 %d us/op，游标分页 %d us/op%n",
+                PAGE, PAGE_SIZE, offsetMicros, cursorMicros);
+    }
+
+    private List<Orders> offset() {
+        PageHelper.startPage(PAGE, PAGE_SIZE);
+        return orderMapper.pageQuery(new OrdersPageQueryDTO());
+    }
+
+    private List<Orders> cursor(Orders last) {
+        return orderMapper.cursorQuery(new OrdersPageQueryDTO(), last.getOrderTime(), last.getId(), PAGE_SIZE);
+    }
+}
@@ -0,0 +1,105 @@
+package com.sky.service.impl;
+
+import com.sky.context.BaseContext;
+import com.sky.entity.Orders;
+import com.sky.mapper.OrderDetailMapper;
+import com.sky.mapper.OrderMapper;
+import com.sky.result.CursorPageResult;
+import com.sky.vo.OrderVO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class OrderServiceImplCursorTest {
+
+    private static final int PAGE_SIZE = 10;
+
+    private final List<Orders> orders = new ArrayList<>();
+    private OrderServiceImpl orderService;
+
+    @BeforeEach
+    public void setUp() {
+        OrderMapper orderMapper = mock(OrderMapper.class);
+        OrderDetailMapper orderDetailMapper = mock(OrderDetailMapper.class);
+        //与OrderMapper.xml中的cursorQuery一致：按下单时间、id倒序，从游标之后开始，最多limit条
+        when(orderMapper.cursorQuery(any(), any(), any(), any())).thenAnswer(invocation -> {
+            LocalDateTime cursorTime = invocation.getArgument(1);
+            Long cursorId = invocation.getArgument(2);
+            Integer limit = invocation.getArgument(3);
+            return orders.stream()
+                    .filter(o -> cursorTime == null || o.getOrderTime().isBefore(cursorTime)
+                            || (o.getOrderTime().equals(cursorTime) && o.getId() < cursorId))
+                    .sorted(Comparator.comparing(Orders::getOrderTime).thenComparing(Orders::getId).reversed())
+                    .limit(limit)
+                    .collect(Collectors.toList());
+        });
+        when(orderDetailMapper.getByOrderIds(anyList())).thenReturn(new ArrayList<>());
+
+        orderService = new OrderServiceImpl();
+        ReflectionTestUtils.setField(orderService, "orderMapper", orderMapper);
+        ReflectionTestUtils.setField(orderService, "orderDetailMapper", orderDetailMapper);
+        BaseContext.setCurrentId(1L);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        BaseContext.removeCurrentId();
+    }
+
+    /**
+     * 多个订单的下单时间相同（包括跨页的位置），逐页查询时每个订单恰好出现一次，
+     * 最后一页没有下一页；订单数正好是页大小的整数倍时也不会多出一个空页
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {25, 20, 3})
+    public void pagesThroughEqualOrderTimes(int count) {
+        LocalDateTime orderTime = LocalDateTime.of(2024, 5, 1, 12, 0);
+        for (long id = 1; id <= count; id++) {
+            //每7个订单共用一个下单时间，且id顺序与时间顺序相反
+            LocalDateTime time = orderTime.plusMinutes((count - id) / 7);
+            orders.add(Orders.builder().id(id).userId(1L).orderTime(time).build());
+        }
+
+        List<Long> ids = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        while (true) {
+            CursorPageResult result = orderService.cursorQuery4User(cursor, PAGE_SIZE, null);
+            pages++;
+            List<OrderVO> records = result.getRecords();
+            records.forEach(orderVO -> ids.add(orderVO.getId()));
+            if (!result.isHasNext()) {
+                assertNull(result.getNextCursor());
+                assertFalse(records.isEmpty());
+                break;
+            }
+            assertEquals(PAGE_SIZE, records.size());
+            cursor = result.getNextCursor();
+            assertTrue(pages <= count, "游标没有前进");
+        }
+
+        List<Long> expected = orders.stream()
+                .sorted(Comparator.comparing(Orders::getOrderTime).thenComparing(Orders::getId).reversed())
+                .map(Orders::getId)
+                .collect(Collectors.toList());
+        assertEquals(expected, ids);
+        assertEquals((count + PAGE_SIZE - 1) / PAGE_SIZE, pages);
+    }
+}
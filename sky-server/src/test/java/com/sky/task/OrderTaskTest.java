@@ -0,0 +1,87 @@
+package com.sky.task;
+
+import com.sky.entity.Orders;
+import com.sky.mapper.OrderMapper;
+import com.sky.order.OrderStateMachine;
+import com.sky.properties.OrderTaskProperties;
+import com.sky.service.impl.OrderServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class OrderTaskTest {
+
+    private OrderMapper orderMapper;
+    private OrderStateMachine orderStateMachine;
+    private OrderTaskProperties orderTaskProperties;
+    private OrderTask orderTask;
+
+    @BeforeEach
+    public void setUp() {
+        orderMapper = mock(OrderMapper.class);
+        orderStateMachine = mock(OrderStateMachine.class);
+        when(orderStateMachine.transitionBatch(anyList(), any(), any()))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        OrderServiceImpl orderService = new OrderServiceImpl();
+        ReflectionTestUtils.setField(orderService, "orderStateMachine", orderStateMachine);
+
+        orderTaskProperties = new OrderTaskProperties();
+        orderTask = new OrderTask();
+        ReflectionTestUtils.setField(orderTask, "orderMapper", orderMapper);
+        ReflectionTestUtils.setField(orderTask, "orderService", orderService);
+        ReflectionTestUtils.setField(orderTask, "orderTaskProperties", orderTaskProperties);
+    }
+
+    /**
+     * 每批订单数超过管理端批量操作的上限时，定时任务仍按配置的批次完成订单
+     */
+    @Test
+    public void completesDeliveredOrdersWithBatchSizeAboveAdminLimit() {
+        orderTaskProperties.setBatchSize(500);
+        List<Long> firstBatch = ids(1, 500);
+        List<Long> secondBatch = ids(501, 120);
+        when(orderMapper.getIdsByStatusAndOrderTimeLT(eq(Orders.DELIVERY_IN_PROGRESS), any(LocalDateTime.class), eq(500)))
+                .thenReturn(firstBatch, secondBatch, Collections.emptyList());
+
+        orderTask.processDeliverOrder();
+
+        verify(orderStateMachine).transitionBatch(eq(firstBatch), eq(Orders.DELIVERY_IN_PROGRESS), any(Orders.class));
+        verify(orderStateMachine).transitionBatch(eq(secondBatch), eq(Orders.DELIVERY_IN_PROGRESS), any(Orders.class));
+        verify(orderMapper, times(2)).getIdsByStatusAndOrderTimeLT(eq(Orders.DELIVERY_IN_PROGRESS),
+                any(LocalDateTime.class), eq(500));
+    }
+
+    @Test
+    public void cancelsTimeoutOrdersWithBatchSizeAboveAdminLimit() {
+        orderTaskProperties.setBatchSize(500);
+        List<Long> batch = ids(1, 500);
+        when(orderMapper.getIdsByStatusAndOrderTimeLT(eq(Orders.PENDING_PAYMENT), any(LocalDateTime.class), eq(500)))
+                .thenReturn(batch, Collections.emptyList());
+
+        orderTask.processTimeOutOrder();
+
+        verify(orderStateMachine).transitionBatch(eq(batch), eq(Orders.PENDING_PAYMENT), any(Orders.class));
+    }
+
+    private List<Long> ids(long first, int count) {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ids.add(first + i);
+        }
+        return ids;
+    }
+}